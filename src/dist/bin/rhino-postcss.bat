@@ -0,0 +1,29 @@
+@echo off
+rem Starts the CLI with the class data sharing archive next to the jar.
+rem The archive is dumped from the class list on first use when it is missing, e.g. after moving the directory.
+rem Set RHINO_POSTCSS_CDS=off to start without it.
+setlocal
+
+set DIR=%~dp0
+set JAR=%DIR%@jar@
+set CLASSLIST=%DIR%rhino-postcss.classlist
+set ARCHIVE=%DIR%rhino-postcss.jsa
+if defined JAVA_HOME (
+  set JAVA="%JAVA_HOME%\bin\java.exe"
+) else (
+  set JAVA=java
+)
+
+rem short runs finish before C2 pays off
+set DEFAULT_JVM_OPTS=-Xss8m -XX:TieredStopAtLevel=1 -XX:+UseSerialGC
+
+set CDS_OPTS=
+if /i "%RHINO_POSTCSS_CDS%"=="off" goto run
+if not exist "%ARCHIVE%" if exist "%CLASSLIST%" (
+  %JAVA% -Xshare:dump "-XX:SharedClassListFile=%CLASSLIST%" "-XX:SharedArchiveFile=%ARCHIVE%" -cp "%JAR%" > nul 2>&1
+)
+rem auto falls back to a normal start when the archive does not match this jvm or jar
+if exist "%ARCHIVE%" set CDS_OPTS="-XX:SharedArchiveFile=%ARCHIVE%" -Xshare:auto
+
+:run
+%JAVA% %DEFAULT_JVM_OPTS% %JAVA_OPTS% %CDS_OPTS% -jar "%JAR%" %*
@@ -0,0 +1,103 @@
+package net.arnx.rhinode.core;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ModuleBenchmark {
+  private static final String MODULES = "net/arnx/rhinode/modules";
+  private static final String POSTCSS_LIB = MODULES + "/node_modules/postcss/lib";
+
+  private static final String[][] REQUESTS = {
+      { MODULES, "postcss" },
+      { MODULES, "autoprefixer" },
+      { MODULES, "postcss-cssnext" },
+      { MODULES, "cssnano" },
+      { POSTCSS_LIB, "./parse" },
+      { POSTCSS_LIB, "./lazy-result" },
+      { POSTCSS_LIB, "source-map" },
+      { POSTCSS_LIB, "path" },
+  };
+
+  private ClassLoader cl;
+  private Context cx;
+  private ModuleResolver resolver;
+  private RhinodeEngine engine;
+  private Script require;
+
+  @Setup
+  public void setup() throws IOException {
+    cl = getClass().getClassLoader();
+    cx = RhinodeContextFactory.INSTANCE.enterContext();
+    resolver = new ModuleResolver(cl);
+    resolve(resolver, null);
+
+    require = RhinodeEngine.compile("require('postcss')", "<require>");
+    engine = new RhinodeEngine(cl, MODULES);
+    engine.eval(require);
+  }
+
+  @TearDown
+  public void tearDown() {
+    engine.close();
+    Context.exit();
+  }
+
+  @Benchmark
+  public void resolveCold(Blackhole bh) throws IOException {
+    resolve(new ModuleResolver(cl), bh);
+  }
+
+  @Benchmark
+  public void resolveWarm(Blackhole bh) throws IOException {
+    resolve(resolver, bh);
+  }
+
+  @Benchmark
+  public Object requireCached() {
+    return engine.eval(require);
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  public Object requireUncached(Fresh fresh) {
+    return fresh.engine.eval(require);
+  }
+
+  @State(Scope.Thread)
+  public static class Fresh {
+    RhinodeEngine engine;
+
+    @Setup(Level.Invocation)
+    public void setup() {
+      engine = new RhinodeEngine(getClass().getClassLoader(), MODULES);
+    }
+  }
+
+  private void resolve(ModuleResolver resolver, Blackhole bh) throws IOException {
+    for (String[] request : REQUESTS) {
+      String target = resolver.resolve(cx, request[0], request[1]);
+      if (target == null) {
+        throw new IllegalStateException("module not found: " + request[1]);
+      }
+      if (bh != null) {
+        bh.consume(target);
+      }
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package net.arnx.rhinode.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RhinodeEngineBenchmark {
+  private static final String MODULES = "net/arnx/rhinode/modules";
+
+  private ClassLoader cl;
+  private SharedScope shared;
+
+  @Setup
+  public void setup() {
+    cl = getClass().getClassLoader();
+    shared = new SharedScope(cl, MODULES + "/node_modules/caniuse-db/");
+  }
+
+  @Benchmark
+  public RhinodeEngine create() {
+    try (RhinodeEngine engine = new RhinodeEngine(cl, MODULES)) {
+      return engine;
+    }
+  }
+
+  @Benchmark
+  public RhinodeEngine createShared() {
+    try (RhinodeEngine engine = new RhinodeEngine(shared, MODULES)) {
+      return engine;
+    }
+  }
+}
@@ -0,0 +1,66 @@
+package net.arnx.rhinode.postcss;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.arnx.rhinode.postcss.PostCSS.Option;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xss8m", "-Xmx2g" })
+public class PostCSSBenchmark {
+  @Param({ Stylesheets.SMALL, Stylesheets.MEDIUM, Stylesheets.LARGE })
+  public String stylesheet;
+
+  @Param({ "false", "true" })
+  public boolean sourceMap;
+
+  private Path dir;
+  private PostCSS postcss;
+
+  @Setup
+  public void setup() throws IOException {
+    dir = Files.createTempDirectory("postcss-jmh");
+    Files.write(dir.resolve(stylesheet), Stylesheets.read(stylesheet));
+
+    postcss = new PostCSS(dir.toUri(), dir);
+    postcss.use("postcss-cssnext");
+    postcss.use("cssnano");
+    if (sourceMap) {
+      postcss.option(Option.CREATE_SOURCE_MAP, true);
+      postcss.option(Option.SOURCE_MAP_WITH_SOURCES_CONTENT, true);
+      postcss.option(Option.ADD_SOURCE_MAPPING_URL, true);
+    }
+    postcss.warmup();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    postcss.close();
+    Files.deleteIfExists(dir.resolve(stylesheet));
+    Files.deleteIfExists(dir);
+  }
+
+  @Benchmark
+  public PostCSS.Result process() throws IOException {
+    return postcss.process(stylesheet, stylesheet);
+  }
+}
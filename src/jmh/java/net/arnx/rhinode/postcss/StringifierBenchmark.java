@@ -0,0 +1,74 @@
+package net.arnx.rhinode.postcss;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Script;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.arnx.rhinode.core.RhinodeEngine;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xss8m", "-Xmx2g" })
+public class StringifierBenchmark {
+  @Param({ Stylesheets.MEDIUM, Stylesheets.LARGE })
+  public String stylesheet;
+
+  @Param({ "false", "true" })
+  public boolean sourceMap;
+
+  @Param({ "false", "true" })
+  public boolean nativeStringifier;
+
+  private RhinodeEngine engine;
+  private Script script;
+  private Map<String, Object> params;
+  private Map<String, Class<?>> resultTypes;
+
+  @Setup
+  public void setup() throws IOException {
+    engine = new RhinodeEngine(getClass().getClassLoader(), "net/arnx/rhinode/modules");
+
+    params = new HashMap<>();
+    params.put("css", new String(Stylesheets.read(stylesheet), StandardCharsets.UTF_8));
+    resultTypes = new HashMap<>();
+    resultTypes.put("root", Object.class);
+    Object root = engine.run(RhinodeEngine.compile("this.root = require('postcss').parse(css, { from: 'a.css' });", "<parse>"),
+        params, resultTypes).get("root");
+
+    script = RhinodeEngine.compile("this.length = require('postcss')().process(root, {"
+        + " from: 'a.css', to: 'a.css', map: sourceMap && { inline: false }, nativeStringifier: nativeStringifier"
+        + " }).stringify().css.length;", "<stringify>");
+
+    params = new HashMap<>();
+    params.put("root", root);
+    params.put("sourceMap", sourceMap);
+    params.put("nativeStringifier", nativeStringifier);
+    resultTypes = new HashMap<>();
+    resultTypes.put("length", Integer.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    engine.close();
+  }
+
+  @Benchmark
+  public Object stringify() {
+    return engine.run(script, params, resultTypes);
+  }
+}
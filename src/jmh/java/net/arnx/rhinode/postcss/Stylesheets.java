@@ -0,0 +1,109 @@
+package net.arnx.rhinode.postcss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+public class Stylesheets {
+  public static final String SMALL = "small.css";
+  public static final String MEDIUM = "medium.css";
+  public static final String LARGE = "large.css";
+
+  private static final String[] COLORS = { "#1e88e5", "#43a047", "#e53935", "#fdd835", "#8e24aa", "#00acc1" };
+  private static final String[] TAGS = { "a", "p", "ul", "li", "span", "button", "input", "h2" };
+
+  public static void main(String[] args) throws IOException {
+    Path dir = Paths.get((args.length > 0) ? args[0] : "src/jmh/resources/net/arnx/rhinode/postcss");
+    Files.createDirectories(dir);
+    write(dir.resolve(SMALL), 8);
+    write(dir.resolve(MEDIUM), 400);
+    write(dir.resolve(LARGE), 4000);
+  }
+
+  public static byte[] read(String name) throws IOException {
+    try (InputStream in = Stylesheets.class.getResourceAsStream(name)) {
+      if (in == null) {
+        throw new FileNotFoundException(name);
+      }
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buf = new byte[8192];
+      int n;
+      while ((n = in.read(buf)) != -1) {
+        out.write(buf, 0, n);
+      }
+      return out.toByteArray();
+    }
+  }
+
+  static void write(Path file, int blocks) throws IOException {
+    try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      generate(out, blocks);
+    }
+  }
+
+  static void generate(Appendable out, int blocks) throws IOException {
+    Random random = new Random(blocks);
+
+    out.append("/* generated by ").append(Stylesheets.class.getName()).append(" */\n\n");
+    out.append(":root {\n");
+    for (int i = 0; i < COLORS.length; i++) {
+      out.append("\t--color-").append(Integer.toString(i)).append(": ").append(COLORS[i]).append(";\n");
+    }
+    out.append("\t--gap: 8px;\n");
+    out.append("}\n\n");
+    out.append("@custom-media --small-viewport (max-width: 30em);\n\n");
+
+    for (int i = 0; i < blocks; i++) {
+      String name = ".c" + Integer.toString(i, 36);
+      String tag = TAGS[random.nextInt(TAGS.length)];
+      int color = random.nextInt(COLORS.length);
+
+      switch (i % 4) {
+      case 0:
+        out.append(name).append(" {\n");
+        out.append("\tdisplay: flex;\n");
+        out.append("\tcolor: var(--color-").append(Integer.toString(color)).append(");\n");
+        out.append("\tmargin: 0 0 calc(var(--gap) * ").append(Integer.toString(random.nextInt(4) + 1)).append(") 0;\n");
+        out.append("\t& ").append(tag).append(" {\n");
+        out.append("\t\tuser-select: none;\n");
+        out.append("\t\tcolor: color(").append(COLORS[color]).append(" alpha(").append(Integer.toString(random.nextInt(90) + 10)).append("%));\n");
+        out.append("\t}\n");
+        out.append("}\n\n");
+        break;
+      case 1:
+        out.append("/* block ").append(Integer.toString(i)).append(" */\n");
+        out.append(name).append(", ").append(name).append(" > ").append(tag).append(" {\n");
+        out.append("\tpadding: ").append(Integer.toString(random.nextInt(16))).append("px ").append(Integer.toString(random.nextInt(16))).append("px;\n");
+        out.append("\tbackground: linear-gradient(to bottom, #ffffff 0%, ").append(COLORS[color]).append(" 100%);\n");
+        out.append("\ttransition: opacity 0.25s ease-in-out;\n");
+        out.append("}\n\n");
+        break;
+      case 2:
+        out.append("@media (--small-viewport) {\n");
+        out.append("\t").append(name).append(" {\n");
+        out.append("\t\tfont-size: ").append(Integer.toString(random.nextInt(8) + 10)).append("px;\n");
+        out.append("\t\tfont-weight: bold;\n");
+        out.append("\t\tcolor: rgba(0, 0, 0, 0.").append(Integer.toString(random.nextInt(9) + 1)).append(");\n");
+        out.append("\t}\n");
+        out.append("}\n\n");
+        break;
+      default:
+        out.append(name).append(":hover ").append(tag).append(" {\n");
+        out.append("\tmargin-top: 0px;\n");
+        out.append("\tmargin-right: ").append(Integer.toString(random.nextInt(4) * 4)).append("px;\n");
+        out.append("\tmargin-bottom: 0px;\n");
+        out.append("\tmargin-left: ").append(Integer.toString(random.nextInt(4) * 4)).append("px;\n");
+        out.append("\tfont-family: system-ui, \"Helvetica Neue\", sans-serif;\n");
+        out.append("}\n\n");
+        break;
+      }
+    }
+  }
+}
@@ -0,0 +1,62 @@
+package net.arnx.rhinode.postcss;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Script;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.arnx.rhinode.core.RhinodeEngine;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xss8m", "-Xmx2g" })
+public class TokenizerBenchmark {
+  @Param({ Stylesheets.MEDIUM, Stylesheets.LARGE })
+  public String stylesheet;
+
+  @Param({ "false", "true" })
+  public boolean nativeTokenizer;
+
+  private RhinodeEngine engine;
+  private Script script;
+  private Map<String, Object> params;
+  private Map<String, Class<?>> resultTypes;
+
+  @Setup
+  public void setup() throws IOException {
+    engine = new RhinodeEngine(getClass().getClassLoader(), "net/arnx/rhinode/modules");
+    script = RhinodeEngine.compile("var input = new (require('postcss/lib/input'))(css);"
+        + "this.tokens = (nativeTokenizer ? Java.type('net.arnx.rhinode.postcss.Tokenizer').tokenize(input, false)"
+        + " : require('postcss/lib/tokenize')(input)).length;", "<tokenize>");
+
+    params = new HashMap<>();
+    params.put("css", new String(Stylesheets.read(stylesheet), StandardCharsets.UTF_8));
+    params.put("nativeTokenizer", nativeTokenizer);
+    resultTypes = new HashMap<>();
+    resultTypes.put("tokens", Integer.class);
+  }
+
+  @TearDown
+  public void tearDown() {
+    engine.close();
+  }
+
+  @Benchmark
+  public Object tokenize() {
+    return engine.run(script, params, resultTypes);
+  }
+}
@@ -0,0 +1,71 @@
+package net.arnx.rhinode.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import net.arnx.rhinode.postcss.Stylesheets;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileUtilBenchmark {
+  private static final String BASEDIR = "net/arnx/rhinode/modules/node_modules/postcss/lib";
+
+  @Benchmark
+  public String toStringFromStream(Input input) throws IOException {
+    return FileUtil.toString(new ByteArrayInputStream(input.data));
+  }
+
+  @Benchmark
+  public String toStringFromPath(Input input) throws IOException {
+    return FileUtil.toString(input.file);
+  }
+
+  @Benchmark
+  public String normalizePlain() {
+    return FileUtil.normalize(BASEDIR, "node_modules");
+  }
+
+  @Benchmark
+  public String normalizeRelative() {
+    return FileUtil.normalize(BASEDIR, "../../source-map/lib/./source-map.js");
+  }
+
+  @Benchmark
+  public String normalizeParent() {
+    return FileUtil.normalize(BASEDIR, "..");
+  }
+
+  @State(Scope.Benchmark)
+  public static class Input {
+    @Param({ Stylesheets.SMALL, Stylesheets.MEDIUM, Stylesheets.LARGE })
+    public String stylesheet;
+
+    byte[] data;
+    Path file;
+
+    @Setup
+    public void setup() throws IOException {
+      data = Stylesheets.read(stylesheet);
+      file = Files.createTempFile("fileutil-jmh", ".css");
+      Files.write(file, data);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -1,57 +1,297 @@
 package net.arnx.rhinode.compile;
 
 import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.json.JsonParser;
+import org.mozilla.javascript.json.JsonParser.ParseException;
 import org.mozilla.javascript.optimizer.ClassCompiler;
 import org.mozilla.javascript.tools.ToolErrorReporter;
 
+import net.arnx.rhinode.core.CompactJson;
+import net.arnx.rhinode.core.ModuleResolver;
 import net.arnx.rhinode.util.FileUtil;
 
 public class RhinodeCompiler {
+  public static final String MANIFEST = "META-INF/rhinode/compile.manifest";
+
+  private static final Pattern REQUIRE = Pattern.compile("(?<![.\\w$])require\\s*\\(\\s*(?:'([^'\\\\]+)'|\"([^\"\\\\]+)\")\\s*\\)");
+
   public static void main(String[] args) throws IOException {
     RhinodeCompiler compiler = new RhinodeCompiler();
+    String parallelism = System.getProperty("rhinode.parallelism");
+    if (parallelism != null) {
+      compiler.parallelism(Integer.parseInt(parallelism));
+    }
     compiler.compile(Paths.get(args[0]), Paths.get(args[1]));
   }
 
+  private final boolean observer = Boolean.parseBoolean(System.getProperty("rhinode.observer", "true"));
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
+  public RhinodeCompiler parallelism(int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.parallelism = parallelism;
+    return this;
+  }
+
   public void compile(Path src, Path dest) throws IOException {
+    List<Path> paths;
+    try (Stream<Path> stream = Files.walk(src.normalize())) {
+      paths = stream.filter((path) -> {
+        if (Files.isDirectory(path)) {
+          return false;
+        }
+        String filename = path.getFileName().toString();
+        return FileUtil.isExtension(filename, ".js")
+            || (FileUtil.isExtension(filename, ".json") && !filename.equals("package.json"));
+      }).collect(Collectors.toList());
+    }
+
+    Path manifest = dest.resolve(MANIFEST);
+    Map<String, Entry> previous = readManifest(manifest);
+
+    URLClassLoader cl = new URLClassLoader(new URL[] { src.toUri().toURL() }, null);
+    ModuleResolver resolver = new ModuleResolver(cl);
+    ThreadLocal<ClassCompiler> compilers = ThreadLocal.withInitial(this::createCompiler);
+
+    Map<String, Entry> current = new TreeMap<>();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(paths.size(), 1)));
+    try {
+      List<Future<Entry>> futures = new ArrayList<>(paths.size());
+      for (Path path : paths) {
+        futures.add(executor.submit(() -> {
+          Context cx = Context.enter();
+          try {
+            return compile(cx, compilers.get(), resolver, src, dest, path, previous);
+          } finally {
+            Context.exit();
+          }
+        }));
+      }
+      for (Future<Entry> future : futures) {
+        Entry entry = future.get();
+        current.put(entry.path, entry);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException)cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      } else if (cause instanceof Error) {
+        throw (Error)cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      executor.shutdownNow();
+      cl.close();
+    }
+
+    // outputs of removed sources and of inner classes that are no longer generated
+    Set<String> outputs = new HashSet<>();
+    for (Entry entry : current.values()) {
+      outputs.addAll(entry.outputs);
+    }
+    for (Entry entry : previous.values()) {
+      for (String output : entry.outputs) {
+        if (!outputs.contains(output)) {
+          Files.deleteIfExists(dest.resolve(output));
+        }
+      }
+    }
+
+    Path resolve = dest.resolve(ModuleResolver.MANIFEST);
+    Files.createDirectories(resolve.getParent());
+    try (BufferedWriter out = Files.newBufferedWriter(resolve, StandardCharsets.UTF_8)) {
+      resolver.write(out);
+    }
+
+    Files.createDirectories(manifest.getParent());
+    try (BufferedWriter out = Files.newBufferedWriter(manifest, StandardCharsets.UTF_8)) {
+      out.write(header());
+      out.write('\n');
+      for (Entry entry : current.values()) {
+        out.write(entry.path);
+        out.write('\t');
+        out.write(entry.hash);
+        for (String output : entry.outputs) {
+          out.write('\t');
+          out.write(output);
+        }
+        out.write('\n');
+      }
+    }
+  }
+
+  private ClassCompiler createCompiler() {
     CompilerEnvirons env = new CompilerEnvirons();
     env.setErrorReporter(new ToolErrorReporter(true));
     env.setOptimizationLevel(9);
     env.setGenerateDebugInfo(false);
     env.setGeneratingSource(false);
-    ClassCompiler compiler = new ClassCompiler(env);
+    // without counts, timeouts and instruction limits do not stop code in precompiled modules
+    env.setGenerateObserverCount(observer);
+    return new ClassCompiler(env);
+  }
+
+  private Entry compile(Context cx, ClassCompiler compiler, ModuleResolver resolver,
+      Path src, Path dest, Path path, Map<String, Entry> previous) throws IOException {
+    String fullpath = FileUtil.normalize(src.relativize(path).toString().replace('\\', '/'));
+    byte[] data = Files.readAllBytes(path);
+    String source = new String(data, StandardCharsets.UTF_8);
+    boolean json = FileUtil.isExtension(fullpath, ".json");
 
-    for (Path path : Files.walk(src.normalize()).collect(Collectors.toList())) {
-      if (Files.isDirectory(path)) {
-        continue;
+    if (!json) {
+      // resolved every time because a new file may change where an unchanged require points
+      Matcher m = REQUIRE.matcher(source);
+      while (m.find()) {
+        resolver.resolve(cx, FileUtil.dirname(fullpath), (m.group(1) != null) ? m.group(1) : m.group(2));
       }
+    }
+
+    String hash = hash(data);
+    Entry old = previous.get(fullpath);
+    if (old != null && old.hash.equals(hash) && exists(dest, old.outputs)) {
+      return old;
+    }
 
-      String filename = path.getFileName().toString();
-      if (!FileUtil.isExtension(filename, ".js")) {
-        continue;
+    List<String> outputs = new ArrayList<>();
+    if (json) {
+      Object value;
+      try {
+        value = new JsonParser(cx, cx.initStandardObjects()).parseValue(source);
+      } catch (ParseException e) {
+        // left to the runtime parser
+        return new Entry(fullpath, hash, outputs);
       }
 
-      String fullpath = FileUtil.normalize(src.relativize(path).toString().replace('\\', '/'));
+      String output = FileUtil.toClassName(fullpath).replace('.', '/') + ".jsonb";
+      Path outPath = dest.resolve(output);
+      Files.createDirectories(outPath.getParent());
+      try (BufferedOutputStream out = new BufferedOutputStream(Files.newOutputStream(outPath))) {
+        CompactJson.write(value, out);
+      }
+      outputs.add(output);
+    } else {
       String code = "(function(exports, require, module, __filename, __dirname) {"
-          + FileUtil.toString(Files.newInputStream(path))
+          + source
           + "})";
 
       String className = FileUtil.toClassName(fullpath);
-      Object[] items = compiler.compileToClassFiles(code , fullpath, 0, className);
+      Object[] items = compiler.compileToClassFiles(code, fullpath, 0, className);
       for (int i = 0; items != null && i != items.length; i += 2) {
-        Path outPath = dest.resolve(items[i].toString().replace('.', '/') + ".class");
+        String output = items[i].toString().replace('.', '/') + ".class";
+        Path outPath = dest.resolve(output);
         byte[] bytes = (byte[])items[i+1];
         Files.createDirectories(outPath.getParent());
         try (BufferedOutputStream out = new BufferedOutputStream(Files.newOutputStream(outPath))) {
           out.write(bytes);
         }
+        outputs.add(output);
       }
     }
+    return new Entry(fullpath, hash, outputs);
+  }
+
+  private String header() {
+    Context cx = Context.enter();
+    try {
+      return "# " + cx.getImplementationVersion() + " observer=" + observer;
+    } finally {
+      Context.exit();
+    }
+  }
+
+  private Map<String, Entry> readManifest(Path manifest) throws IOException {
+    Map<String, Entry> entries = new HashMap<>();
+    try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+      // compiled with other settings or another version of rhino
+      if (!header().equals(reader.readLine())) {
+        return entries;
+      }
+
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] items = line.split("\t", -1);
+        if (items.length >= 2) {
+          entries.put(items[0], new Entry(items[0], items[1], Arrays.asList(items).subList(2, items.length)));
+        }
+      }
+    } catch (NoSuchFileException e) {
+      // first build
+    }
+    return entries;
+  }
+
+  private static boolean exists(Path dest, List<String> outputs) {
+    for (String output : outputs) {
+      if (!Files.exists(dest.resolve(output))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String hash(byte[] data) {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    StringBuilder sb = new StringBuilder(64);
+    for (byte b : md.digest(data)) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+      sb.append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  private static class Entry {
+    final String path;
+    final String hash;
+    final List<String> outputs;
+
+    Entry(String path, String hash, List<String> outputs) {
+      this.path = path;
+      this.hash = hash;
+      this.outputs = outputs;
+    }
   }
 }
@@ -0,0 +1,56 @@
+package net.arnx.rhinode.core;
+
+import org.mozilla.javascript.BaseFunction;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+class Builtin extends BaseFunction {
+  interface Dispatcher {
+    Object exec(int id, Context cx, Scriptable thisObj, Object[] args);
+  }
+
+  static void define(ScriptableObject target, Scriptable scope, Dispatcher host, String name, int id, int arity) {
+    Builtin fn = new Builtin(host, id, name, arity);
+    ScriptRuntime.setFunctionProtoAndParent(fn, scope);
+    ScriptableObject.defineProperty(target, name, fn, ScriptableObject.DONTENUM);
+  }
+
+  private final Dispatcher host;
+  private final int id;
+  private final String name;
+  private final int arity;
+
+  private Builtin(Dispatcher host, int id, String name, int arity) {
+    this.host = host;
+    this.id = id;
+    this.name = name;
+    this.arity = arity;
+  }
+
+  @Override
+  public String getFunctionName() {
+    return name;
+  }
+
+  @Override
+  public int getArity() {
+    return arity;
+  }
+
+  @Override
+  public int getLength() {
+    return arity;
+  }
+
+  @Override
+  public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+    return host.exec(id, cx, thisObj, args);
+  }
+
+  @Override
+  public Scriptable construct(Context cx, Scriptable scope, Object[] args) {
+    throw ScriptRuntime.typeError(name + " is not a constructor");
+  }
+}
@@ -0,0 +1,471 @@
+package net.arnx.rhinode.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.TopLevel;
+
+public class CompactJson {
+  private static final int MAGIC = 0x524A5342;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+
+  private static final byte NULL = 0;
+  private static final byte FALSE = 1;
+  private static final byte TRUE = 2;
+  private static final byte INT = 3;
+  private static final byte DOUBLE = 4;
+  private static final byte STRING = 5;
+  private static final byte ARRAY = 6;
+  private static final byte OBJECT = 7;
+
+  private static final Map<String, CompactJson> LOADED = new ConcurrentHashMap<>();
+
+  public static void write(Object value, OutputStream out) throws IOException {
+    new Writer().write(value, out);
+  }
+
+  static CompactJson load(ClassLoader cl, String resource) throws IOException {
+    URL url = cl.getResource(resource);
+    return (url != null) ? load(url, resource) : null;
+  }
+
+  static CompactJson load(URL url) throws IOException {
+    return load(url, null);
+  }
+
+  private static CompactJson load(URL url, String resource) throws IOException {
+    String key = url.toString();
+    CompactJson data = LOADED.get(key);
+    if (data == null) {
+      data = new CompactJson(read(url), resource);
+      CompactJson current = LOADED.putIfAbsent(key, data);
+      if (current != null) {
+        data = current;
+      }
+    }
+    return data;
+  }
+
+  private static ByteBuffer read(URL url) throws IOException {
+    if ("file".equals(url.getProtocol())) {
+      try (FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ)) {
+        return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      } catch (URISyntaxException e) {
+        // fall through
+      }
+    }
+
+    try (InputStream in = url.openStream()) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] buf = new byte[8192];
+      int n;
+      while ((n = in.read(buf)) != -1) {
+        out.write(buf, 0, n);
+      }
+      return ByteBuffer.wrap(out.toByteArray());
+    }
+  }
+
+  private final ByteBuffer buf;
+  private final String resource;
+  private final int root;
+  private final int stringTable;
+  private final String[] strings;
+
+  private CompactJson(ByteBuffer buf, String resource) throws IOException {
+    if (buf.limit() < HEADER_SIZE || buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+      throw new IOException("unknown compact json format.");
+    }
+    this.buf = buf;
+    this.resource = resource;
+    this.root = buf.getInt(8);
+    this.stringTable = buf.getInt(12);
+    this.strings = new String[buf.getInt(stringTable)];
+  }
+
+  Object root(Scriptable scope, boolean frozen) {
+    return value(scope, root, frozen);
+  }
+
+  private Object value(Scriptable scope, int ref, boolean frozen) {
+    switch (buf.get(ref)) {
+    case NULL:
+      return null;
+    case FALSE:
+      return Boolean.FALSE;
+    case TRUE:
+      return Boolean.TRUE;
+    case INT:
+      return Integer.valueOf(buf.getInt(ref + 1));
+    case DOUBLE:
+      return Double.valueOf(buf.getDouble(ref + 1));
+    case STRING:
+      return string(buf.getInt(ref + 1));
+    case ARRAY:
+      Object[] elements = new Object[buf.getInt(ref + 1)];
+      for (int i = 0; i < elements.length; i++) {
+        elements[i] = value(scope, buf.getInt(ref + 5 + i * 4), frozen);
+      }
+      NativeArray array = new NativeArray(elements);
+      ScriptRuntime.setBuiltinProtoAndParent(array, scope, TopLevel.Builtins.Array);
+      if (frozen) {
+        array.sealObject();
+      }
+      return array;
+    case OBJECT:
+      return new View(this, scope, ref, frozen);
+    default:
+      throw new IllegalStateException("broken compact json: " + ref);
+    }
+  }
+
+  private String string(int index) {
+    String value = strings[index];
+    if (value == null) {
+      int offset = buf.getInt(stringTable + 4 + index * 4);
+      byte[] bytes = new byte[buf.getInt(offset)];
+      ByteBuffer view = buf.duplicate();
+      view.position(offset + 4);
+      view.get(bytes);
+      value = new String(bytes, StandardCharsets.UTF_8);
+      strings[index] = value;
+    }
+    return value;
+  }
+
+  private static class View extends NativeObject {
+    private transient volatile CompactJson data;
+    private final int ref;
+    private final boolean frozen;
+
+    View(CompactJson data, Scriptable scope, int ref, boolean frozen) {
+      this.data = data;
+      this.ref = ref;
+      this.frozen = frozen;
+      ScriptRuntime.setBuiltinProtoAndParent(this, scope, TopLevel.Builtins.Object);
+    }
+
+    private void materialize() {
+      if (data == null) {
+        return;
+      }
+
+      synchronized (this) {
+        CompactJson current = data;
+        if (current == null) {
+          return;
+        }
+
+        Scriptable scope = getParentScope();
+        int count = current.buf.getInt(ref + 1);
+        for (int i = 0; i < count; i++) {
+          int pos = ref + 5 + i * 8;
+          String key = current.string(current.buf.getInt(pos));
+          Object value = current.value(scope, current.buf.getInt(pos + 4), frozen);
+
+          long index = ScriptRuntime.indexFromString(key);
+          if (index < 0) {
+            super.put(key, this, value);
+          } else {
+            super.put((int)index, this, value);
+          }
+        }
+        if (frozen) {
+          super.sealObject();
+        }
+        data = null;
+      }
+    }
+
+    @Override
+    public boolean has(String name, Scriptable start) {
+      materialize();
+      return super.has(name, start);
+    }
+
+    @Override
+    public boolean has(int index, Scriptable start) {
+      materialize();
+      return super.has(index, start);
+    }
+
+    @Override
+    public Object get(String name, Scriptable start) {
+      materialize();
+      return super.get(name, start);
+    }
+
+    @Override
+    public Object get(int index, Scriptable start) {
+      materialize();
+      return super.get(index, start);
+    }
+
+    @Override
+    public void put(String name, Scriptable start, Object value) {
+      materialize();
+      super.put(name, start, value);
+    }
+
+    @Override
+    public void put(int index, Scriptable start, Object value) {
+      materialize();
+      super.put(index, start, value);
+    }
+
+    @Override
+    public void delete(String name) {
+      materialize();
+      super.delete(name);
+    }
+
+    @Override
+    public void delete(int index) {
+      materialize();
+      super.delete(index);
+    }
+
+    @Override
+    public int getAttributes(String name) {
+      materialize();
+      return super.getAttributes(name);
+    }
+
+    @Override
+    public int getAttributes(int index) {
+      materialize();
+      return super.getAttributes(index);
+    }
+
+    @Override
+    public void setAttributes(String name, int attributes) {
+      materialize();
+      super.setAttributes(name, attributes);
+    }
+
+    @Override
+    public void setAttributes(int index, int attributes) {
+      materialize();
+      super.setAttributes(index, attributes);
+    }
+
+    @Override
+    public Object[] getIds() {
+      materialize();
+      return super.getIds();
+    }
+
+    @Override
+    public Object[] getAllIds() {
+      materialize();
+      return super.getAllIds();
+    }
+
+    @Override
+    protected ScriptableObject getOwnPropertyDescriptor(Context cx, Object id) {
+      materialize();
+      return super.getOwnPropertyDescriptor(cx, id);
+    }
+
+    @Override
+    protected void defineOwnProperty(Context cx, Object id, ScriptableObject desc, boolean checkValid) {
+      materialize();
+      super.defineOwnProperty(cx, id, desc, checkValid);
+    }
+
+    @Override
+    public void preventExtensions() {
+      materialize();
+      super.preventExtensions();
+    }
+
+    @Override
+    public synchronized void sealObject() {
+      materialize();
+      super.sealObject();
+    }
+
+    @Override
+    public int size() {
+      materialize();
+      return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      materialize();
+      return super.isEmpty();
+    }
+
+    private Object writeReplace() {
+      // an untouched view is written as a reference into the resource, so it stays lazy after restoring
+      CompactJson current = data;
+      if (current != null && current.resource != null) {
+        return new Ref(current.resource, getParentScope(), ref, frozen);
+      }
+      materialize();
+      return this;
+    }
+  }
+
+  static class Ref implements Serializable {
+    private final String resource;
+    private final Scriptable scope;
+    private final int ref;
+    private final boolean frozen;
+
+    Ref(String resource, Scriptable scope, int ref, boolean frozen) {
+      this.resource = resource;
+      this.scope = scope;
+      this.ref = ref;
+      this.frozen = frozen;
+    }
+
+    Object resolve(ClassLoader cl) throws IOException {
+      CompactJson data = load(cl, resource);
+      if (data == null) {
+        throw new IOException("missing compact json: " + resource);
+      }
+      return new View(data, scope, ref, frozen);
+    }
+  }
+
+  private static class Writer {
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(body);
+    private final Map<String, Integer> strings = new LinkedHashMap<>();
+    private final Map<Object, Integer> primitives = new HashMap<>();
+
+    public void write(Object value, OutputStream dest) throws IOException {
+      int root = value(value);
+      int stringTable = HEADER_SIZE + body.size();
+
+      DataOutputStream dout = new DataOutputStream(dest);
+      dout.writeInt(MAGIC);
+      dout.writeInt(VERSION);
+      dout.writeInt(root);
+      dout.writeInt(stringTable);
+      body.writeTo(dout);
+
+      byte[][] encoded = new byte[strings.size()][];
+      int i = 0;
+      for (String str : strings.keySet()) {
+        encoded[i++] = str.getBytes(StandardCharsets.UTF_8);
+      }
+
+      dout.writeInt(encoded.length);
+      int offset = stringTable + 4 + encoded.length * 4;
+      for (byte[] bytes : encoded) {
+        dout.writeInt(offset);
+        offset += 4 + bytes.length;
+      }
+      for (byte[] bytes : encoded) {
+        dout.writeInt(bytes.length);
+        dout.write(bytes);
+      }
+      dout.flush();
+    }
+
+    private int value(Object value) throws IOException {
+      if (value instanceof NativeArray) {
+        NativeArray array = (NativeArray)value;
+        int[] refs = new int[(int)array.getLength()];
+        for (int i = 0; i < refs.length; i++) {
+          Object element = array.get(i, array);
+          refs[i] = value(element == Scriptable.NOT_FOUND ? null : element);
+        }
+
+        int ref = position();
+        out.writeByte(ARRAY);
+        out.writeInt(refs.length);
+        for (int elementRef : refs) {
+          out.writeInt(elementRef);
+        }
+        return ref;
+      } else if (value instanceof Scriptable) {
+        Scriptable obj = (Scriptable)value;
+        Object[] ids = obj.getIds();
+        int[] keys = new int[ids.length];
+        int[] refs = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+          if (ids[i] instanceof Integer) {
+            keys[i] = string(ids[i].toString());
+            refs[i] = value(obj.get((Integer)ids[i], obj));
+          } else {
+            keys[i] = string((String)ids[i]);
+            refs[i] = value(obj.get((String)ids[i], obj));
+          }
+        }
+
+        int ref = position();
+        out.writeByte(OBJECT);
+        out.writeInt(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+          out.writeInt(keys[i]);
+          out.writeInt(refs[i]);
+        }
+        return ref;
+      }
+
+      Integer cached = primitives.get(value);
+      if (cached != null) {
+        return cached;
+      }
+
+      int ref = position();
+      if (value == null) {
+        out.writeByte(NULL);
+      } else if (value instanceof Boolean) {
+        out.writeByte((Boolean)value ? TRUE : FALSE);
+      } else if (value instanceof Integer) {
+        out.writeByte(INT);
+        out.writeInt((Integer)value);
+      } else if (value instanceof Number) {
+        out.writeByte(DOUBLE);
+        out.writeDouble(((Number)value).doubleValue());
+      } else if (value instanceof CharSequence) {
+        out.writeByte(STRING);
+        out.writeInt(string(value.toString()));
+      } else {
+        throw new IllegalArgumentException("unsupported json value: " + value);
+      }
+      primitives.put(value, ref);
+      return ref;
+    }
+
+    private int string(String value) {
+      Integer index = strings.get(value);
+      if (index == null) {
+        index = strings.size();
+        strings.put(value, index);
+      }
+      return index;
+    }
+
+    private int position() {
+      return HEADER_SIZE + body.size();
+    }
+  }
+}
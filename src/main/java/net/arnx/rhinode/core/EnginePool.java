@@ -0,0 +1,179 @@
+package net.arnx.rhinode.core;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public class EnginePool<T extends AutoCloseable> implements AutoCloseable {
+  private static final long RETRY_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final Supplier<T> factory;
+  private final int maxSize;
+  private final long timeout;
+
+  private final BlockingDeque<T> idle = new LinkedBlockingDeque<>();
+  private final AtomicInteger size = new AtomicInteger();
+  private final AtomicInteger busy = new AtomicInteger();
+  private final LongAdder borrowCount = new LongAdder();
+  private final LongAdder waitTime = new LongAdder();
+  private final AtomicLong maxWaitTime = new AtomicLong();
+  private volatile boolean closed;
+
+  public EnginePool(Supplier<T> factory, int maxSize, long timeout, TimeUnit unit) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+    }
+    this.factory = factory;
+    this.maxSize = maxSize;
+    this.timeout = unit.toNanos(timeout);
+  }
+
+  public T borrow() {
+    if (closed) {
+      throw new IllegalStateException("pool is closed.");
+    }
+
+    long start = System.nanoTime();
+    T engine;
+    try {
+      // capacity freed by invalidate() only shows up through create(), so waiting is done in slices
+      while ((engine = idle.pollFirst()) == null && (engine = create()) == null) {
+        long remaining = timeout - (System.nanoTime() - start);
+        if (remaining <= 0) {
+          throw new IllegalStateException("timeout for borrowing engine");
+        }
+        engine = idle.pollFirst(Math.min(remaining, RETRY_INTERVAL), TimeUnit.NANOSECONDS);
+        if (engine != null) {
+          break;
+        } else if (closed) {
+          throw new IllegalStateException("pool is closed.");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("cancel for borrowing engine", e);
+    }
+
+    long wait = System.nanoTime() - start;
+    borrowCount.increment();
+    waitTime.add(wait);
+    maxWaitTime.accumulateAndGet(wait, Math::max);
+    busy.incrementAndGet();
+    return engine;
+  }
+
+  public void release(T engine) {
+    busy.decrementAndGet();
+    if (closed) {
+      destroy(engine);
+    } else {
+      idle.offerFirst(engine);
+    }
+  }
+
+  public void invalidate(T engine) {
+    busy.decrementAndGet();
+    destroy(engine);
+  }
+
+  public void prestart() {
+    T engine;
+    while ((engine = create()) != null) {
+      idle.offerLast(engine);
+    }
+  }
+
+  public Stats stats() {
+    return new Stats(size.get(), idle.size(), busy.get(),
+        borrowCount.sum(), waitTime.sum(), maxWaitTime.get());
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    T engine;
+    while ((engine = idle.pollFirst()) != null) {
+      destroy(engine);
+    }
+  }
+
+  private T create() {
+    int current;
+    do {
+      current = size.get();
+      if (current >= maxSize) {
+        return null;
+      }
+    } while (!size.compareAndSet(current, current + 1));
+
+    try {
+      return factory.get();
+    } catch (RuntimeException | Error e) {
+      size.decrementAndGet();
+      throw e;
+    }
+  }
+
+  private void destroy(T engine) {
+    size.decrementAndGet();
+    try {
+      engine.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
+  public static class Stats {
+    private final int size;
+    private final int idle;
+    private final int busy;
+    private final long borrowCount;
+    private final long waitTime;
+    private final long maxWaitTime;
+
+    private Stats(int size, int idle, int busy, long borrowCount, long waitTime, long maxWaitTime) {
+      this.size = size;
+      this.idle = idle;
+      this.busy = busy;
+      this.borrowCount = borrowCount;
+      this.waitTime = waitTime;
+      this.maxWaitTime = maxWaitTime;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public int idle() {
+      return idle;
+    }
+
+    public int busy() {
+      return busy;
+    }
+
+    public long borrowCount() {
+      return borrowCount;
+    }
+
+    public long waitTime(TimeUnit unit) {
+      return unit.convert(waitTime, TimeUnit.NANOSECONDS);
+    }
+
+    public long maxWaitTime(TimeUnit unit) {
+      return unit.convert(maxWaitTime, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+      return "Stats [size=" + size + ", idle=" + idle + ", busy=" + busy
+          + ", borrowCount=" + borrowCount
+          + ", waitTime=" + TimeUnit.NANOSECONDS.toMillis(waitTime) + "ms"
+          + ", maxWaitTime=" + TimeUnit.NANOSECONDS.toMillis(maxWaitTime) + "ms]";
+    }
+  }
+}
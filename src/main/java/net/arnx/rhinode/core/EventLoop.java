@@ -0,0 +1,33 @@
+package net.arnx.rhinode.core;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.mozilla.javascript.Context;
+
+class EventLoop {
+  interface Job {
+    void run(Context cx);
+  }
+
+  private final Deque<Job> jobs = new ArrayDeque<>();
+
+  void enqueue(Job job) {
+    jobs.add(job);
+  }
+
+  void drain(Context cx) {
+    Job job;
+    while ((job = jobs.poll()) != null) {
+      job.run(cx);
+    }
+  }
+
+  void clear() {
+    jobs.clear();
+  }
+
+  int size() {
+    return jobs.size();
+  }
+}
@@ -0,0 +1,285 @@
+package net.arnx.rhinode.core;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.TopLevel;
+
+import net.arnx.rhinode.util.LruCache;
+
+class FileSystem extends HostObject {
+  static final String MODULE = "fs";
+
+  private static final Object STATS = FileSystem.class.getName() + ".stats";
+  private static final long MAX_CACHED_SIZE = 1024 * 1024;
+
+  private static final int EXISTS_SYNC = 1;
+  private static final int STAT_SYNC = 2;
+  private static final int READ_FILE_SYNC = 3;
+  private static final int IS_FILE = 4;
+  private static final int IS_DIRECTORY = 5;
+  private static final int TO_STRING = 6;
+
+  private static final Stat MISSING = new Stat(false, false, 0, 0);
+
+  static Map<String, Stat> start(Context cx) {
+    @SuppressWarnings("unchecked")
+    Map<String, Stat> previous = (Map<String, Stat>)cx.getThreadLocal(STATS);
+    cx.putThreadLocal(STATS, new HashMap<String, Stat>());
+    return previous;
+  }
+
+  static void end(Context cx, Map<String, Stat> previous) {
+    if (previous != null) {
+      cx.putThreadLocal(STATS, previous);
+    } else {
+      cx.removeThreadLocal(STATS);
+    }
+  }
+
+  private final NativeObject statsProto = new NativeObject();
+  private final NativeObject bufferProto = new NativeObject();
+  private transient volatile LruCache<String, Content> contents;
+
+  FileSystem(Scriptable global) {
+    super(global);
+    define(this, "existsSync", EXISTS_SYNC, 1);
+    define(this, "statSync", STAT_SYNC, 1);
+    define(this, "readFileSync", READ_FILE_SYNC, 2);
+
+    ScriptRuntime.setBuiltinProtoAndParent(statsProto, global, TopLevel.Builtins.Object);
+    define(statsProto, "isFile", IS_FILE, 0);
+    define(statsProto, "isDirectory", IS_DIRECTORY, 0);
+
+    ScriptRuntime.setBuiltinProtoAndParent(bufferProto, global, TopLevel.Builtins.Object);
+    define(bufferProto, "toString", TO_STRING, 1);
+  }
+
+  @Override
+  public String getClassName() {
+    return "FileSystem";
+  }
+
+  @Override
+  public Object exec(int id, Context cx, Scriptable thisObj, Object[] args) {
+    switch (id) {
+    case EXISTS_SYNC: {
+      Object file = arg(args, 0);
+      if (!isString(file)) {
+        return false;
+      }
+      try {
+        return stat(cx, ScriptRuntime.toString(file)).exists;
+      } catch (IOException e) {
+        return false;
+      }
+    }
+    case STAT_SYNC: {
+      String file = file(args);
+      Stat stat = existing(cx, file, "stat");
+
+      Stats stats = new Stats(stat);
+      stats.setPrototype(statsProto);
+      stats.setParentScope(getParentScope());
+      ScriptableObject.putProperty(stats, "size", (double)stat.size);
+      ScriptableObject.putProperty(stats, "mtimeMs", (double)stat.mtime);
+      return stats;
+    }
+    case READ_FILE_SYNC: {
+      String file = file(args);
+      Object options = arg(args, 1);
+      Object encoding = null;
+      if (isString(options)) {
+        encoding = options;
+      } else if (options instanceof Scriptable) {
+        encoding = ScriptableObject.getProperty((Scriptable)options, "encoding");
+      }
+
+      Stat stat = existing(cx, file, "open");
+      if (stat.directory) {
+        throw error(cx, "EISDIR", "illegal operation on a directory", "read", file);
+      }
+
+      Content content;
+      try {
+        content = content(file, stat);
+      } catch (IOException e) {
+        throw Context.throwAsScriptRuntimeEx(e);
+      }
+
+      if (isString(encoding)) {
+        return content.toString(charset(ScriptRuntime.toString(encoding)));
+      }
+
+      Buffer buffer = new Buffer(content);
+      buffer.setPrototype(bufferProto);
+      buffer.setParentScope(getParentScope());
+      ScriptableObject.putProperty(buffer, "length", content.bytes.length);
+      return buffer;
+    }
+    case IS_FILE:
+      return !((Stats)cast(thisObj, Stats.class, "isFile")).stat.directory;
+    case IS_DIRECTORY:
+      return ((Stats)cast(thisObj, Stats.class, "isDirectory")).stat.directory;
+    case TO_STRING: {
+      Buffer buffer = (Buffer)cast(thisObj, Buffer.class, "toString");
+      Object encoding = arg(args, 0);
+      return buffer.content.toString(isString(encoding) ? charset(ScriptRuntime.toString(encoding)) : StandardCharsets.UTF_8);
+    }
+    default:
+      throw new IllegalArgumentException(String.valueOf(id));
+    }
+  }
+
+  private Stat existing(Context cx, String file, String syscall) {
+    Stat stat;
+    try {
+      stat = stat(cx, file);
+    } catch (IOException e) {
+      throw Context.throwAsScriptRuntimeEx(e);
+    }
+    if (!stat.exists) {
+      throw error(cx, "ENOENT", "no such file or directory", syscall, file);
+    }
+    return stat;
+  }
+
+  private Stat stat(Context cx, String file) throws IOException {
+    @SuppressWarnings("unchecked")
+    Map<String, Stat> stats = (Map<String, Stat>)cx.getThreadLocal(STATS);
+    Stat stat = (stats != null) ? stats.get(file) : null;
+    if (stat == null) {
+      try {
+        BasicFileAttributes attrs = Files.readAttributes(Paths.get(file), BasicFileAttributes.class);
+        stat = new Stat(true, attrs.isDirectory(), attrs.lastModifiedTime().toMillis(), attrs.size());
+      } catch (NoSuchFileException | InvalidPathException e) {
+        stat = MISSING;
+      }
+      if (stats != null) {
+        stats.put(file, stat);
+      }
+    }
+    return stat;
+  }
+
+  private Content content(String file, Stat stat) throws IOException {
+    Path path = Paths.get(file);
+    if (stat.size > MAX_CACHED_SIZE) {
+      return new Content(Files.readAllBytes(path));
+    }
+
+    LruCache<String, Content> current = contents;
+    if (current == null) {
+      synchronized (this) {
+        current = contents;
+        if (current == null) {
+          current = new LruCache<>(256, 16 * MAX_CACHED_SIZE, content -> content.bytes.length * 3L);
+          contents = current;
+        }
+      }
+    }
+    return current.get(file + '\0' + stat.mtime + '\0' + stat.size, () -> new Content(Files.readAllBytes(path)));
+  }
+
+  private JavaScriptException error(Context cx, String code, String message, String syscall, String file) {
+    Scriptable error = cx.newObject(getParentScope(), "Error", new Object[] {
+        code + ": " + message + ", " + syscall + " '" + file + "'" });
+    ScriptableObject.putProperty(error, "code", code);
+    ScriptableObject.putProperty(error, "syscall", syscall);
+    ScriptableObject.putProperty(error, "path", file);
+    return new JavaScriptException(error, null, 0);
+  }
+
+  private static String file(Object[] args) {
+    Object file = arg(args, 0);
+    if (!isString(file)) {
+      throw ScriptRuntime.typeError("file must be string");
+    }
+    return ScriptRuntime.toString(file);
+  }
+
+  private static Charset charset(String encoding) {
+    try {
+      return Charset.forName(encoding);
+    } catch (IllegalArgumentException e) {
+      throw ScriptRuntime.typeError("Unknown encoding: " + encoding);
+    }
+  }
+
+  static class Stat {
+    final boolean exists;
+    final boolean directory;
+    final long mtime;
+    final long size;
+
+    Stat(boolean exists, boolean directory, long mtime, long size) {
+      this.exists = exists;
+      this.directory = directory;
+      this.mtime = mtime;
+      this.size = size;
+    }
+  }
+
+  private static class Content {
+    final byte[] bytes;
+    private volatile String utf8;
+
+    Content(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    String toString(Charset charset) {
+      if (!StandardCharsets.UTF_8.equals(charset)) {
+        return new String(bytes, charset);
+      }
+
+      String current = utf8;
+      if (current == null) {
+        current = new String(bytes, StandardCharsets.UTF_8);
+        utf8 = current;
+      }
+      return current;
+    }
+  }
+
+  private static class Stats extends ScriptableObject {
+    private final transient Stat stat;
+
+    Stats(Stat stat) {
+      this.stat = stat;
+    }
+
+    @Override
+    public String getClassName() {
+      return "Stats";
+    }
+  }
+
+  private static class Buffer extends ScriptableObject {
+    private final transient Content content;
+
+    Buffer(Content content) {
+      this.content = content;
+    }
+
+    @Override
+    public String getClassName() {
+      return "Buffer";
+    }
+  }
+}
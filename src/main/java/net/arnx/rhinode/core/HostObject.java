@@ -0,0 +1,33 @@
+package net.arnx.rhinode.core;
+
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.TopLevel;
+import org.mozilla.javascript.Undefined;
+
+abstract class HostObject extends ScriptableObject implements Builtin.Dispatcher {
+  HostObject(Scriptable global) {
+    ScriptRuntime.setBuiltinProtoAndParent(this, global, TopLevel.Builtins.Object);
+  }
+
+  void define(ScriptableObject target, String name, int id, int arity) {
+    Builtin.define(target, getParentScope(), this, name, id, arity);
+  }
+
+  static boolean isString(Object value) {
+    return value instanceof CharSequence
+        || (value instanceof Scriptable && "String".equals(((Scriptable)value).getClassName()));
+  }
+
+  static Object arg(Object[] args, int index) {
+    return (index < args.length) ? args[index] : Undefined.instance;
+  }
+
+  static Object cast(Scriptable thisObj, Class<?> type, String name) {
+    if (!type.isInstance(thisObj)) {
+      throw ScriptRuntime.typeError(name + " called on incompatible receiver");
+    }
+    return thisObj;
+  }
+}
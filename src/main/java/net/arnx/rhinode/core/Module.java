@@ -1,12 +1,16 @@
 package net.arnx.rhinode.core;
 
 import java.io.IOException;
+import java.io.Serializable;
 import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
@@ -14,22 +18,15 @@ import org.mozilla.javascript.Script;
 import org.mozilla.javascript.ScriptRuntime;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
-import org.mozilla.javascript.UniqueTag;
 import org.mozilla.javascript.json.JsonParser;
 import org.mozilla.javascript.json.JsonParser.ParseException;
 
 import net.arnx.rhinode.util.FileUtil;
 
 public class Module extends ScriptableObject implements Function {
-  private static final ThreadLocal<Map<String, Scriptable>> LOCAL = new ThreadLocal<Map<String, Scriptable>>() {
-    protected Map<String,Scriptable> initialValue() {
-      return new HashMap<>();
-    }
-  };
-
-  private Context cx;
   private Scriptable global;
-  private ClassLoader cl;
+  private transient ClassLoader cl;
+  private transient ModuleResolver resolver;
   private String basedir;
 
   private Module main;
@@ -38,8 +35,7 @@ public class Module extends ScriptableObject implements Function {
   private List<Scriptable> children = new ArrayList<>();
   private Scriptable exports;
 
-  public Module(Context cx,
-      Scriptable global,
+  public Module(Scriptable global,
       ClassLoader cl,
       String basedir,
       ModuleCache cache,
@@ -49,9 +45,9 @@ public class Module extends ScriptableObject implements Function {
       Module parent,
       Module main) {
 
-    this.cx = cx;
     this.global = global;
     this.cl = cl;
+    this.resolver = ModuleResolver.get(cl);
     this.basedir = basedir;
 
     this.main = (main != null) ? main : this;
@@ -86,40 +82,25 @@ public class Module extends ScriptableObject implements Function {
       throw ScriptRuntime.constructError("Error", "Cannot find module ''");
     }
 
-    String fullpath = FileUtil.normalize(basedir, path);
-    Scriptable cachedExports = LOCAL.get().get(fullpath);
-    if (cachedExports != null) {
-      return cachedExports;
-    } else {
-      LOCAL.get().put(fullpath, cx.newObject(scope));
-    }
-
-    Module found = null;
     try {
-      if (path.startsWith("/") || path.startsWith("../") || path.startsWith("./")) {
-        found = findModule(basedir, path);
-      } else if (path.startsWith("classpath:")) {
-        found = findModule("", path.substring(10));
-      } else if (path.equals("fs") || path.equals("path") || path.equals("url")) {
-        found = findModule("net/arnx/rhinode/core", path);
-      } else {
-        String current = basedir;
-        do {
-          found = findModule(FileUtil.normalize(current, "node_modules"), path);
-        } while (found == null && (current = FileUtil.normalize(current, "..")) != null);
+      String target = resolver.resolve(cx, basedir, path);
+      if (target == null) {
+        throw ScriptRuntime.constructError("Error", "Cannot find module '" + path + "'");
       }
 
+      Module found = cache.get(target);
       if (found == null) {
-        throw ScriptRuntime.constructError("Error", "Cannot find module '" + path + "'");
+        found = compileModule(cx, target, cl.getResource(target));
       }
 
-      children.add(found.module);
+      if (!children.contains(found.module)) {
+        children.add(found.module);
+      }
 
-      return found.exports;
+      // a module which is still loading (circular or concurrent require) returns its partial exports
+      return ScriptableObject.getProperty(found.module, "exports");
     } catch (IOException e) {
       throw new UncheckedIOException(e);
-    } finally {
-      LOCAL.remove();
     }
   }
 
@@ -127,73 +108,108 @@ public class Module extends ScriptableObject implements Function {
     ScriptableObject.putProperty(module, "loaded", true);
   }
 
-  private Module findModule(String basedir, String path) throws IOException {
-    if (path == null) {
-      return null;
-    }
-
-    String fullPath = FileUtil.normalize(basedir, path);
-
-    Module found = cache.get(fullPath);
-    if (found != null) {
-      return found;
-    }
+  void share(ModuleRegistry registry) {
+    cache.registry = registry;
+  }
 
-    URL url = null;
-    String targetPath = null;
-    if (FileUtil.isExtension(fullPath, ".js") || FileUtil.isExtension(fullPath, ".json")) {
-      targetPath = fullPath;
-      url = cl.getResource(targetPath);
-    } else {
-      targetPath = fullPath + ".js";
-      url = cl.getResource(targetPath);
-      if (url == null) {
-        targetPath = fullPath + ".json";
-        url = cl.getResource(targetPath);
+  void bind(Context cx, ClassLoader cl) {
+    this.cl = cl;
+    this.resolver = ModuleResolver.get(cl);
+    for (Module cached : cache.modules.values()) {
+      cached.cl = cl;
+      cached.resolver = resolver;
+
+      // regexp literals of compiled modules live in static fields, which are not part of a snapshot
+      String filename = Context.toString(ScriptableObject.getProperty(cached.module, "filename"));
+      String className = FileUtil.toClassName(filename);
+      if (FileUtil.isExtension(filename, ".js") && cl.getResource(className.replace('.', '/') + ".class") != null) {
+        try {
+          Method reInit = Class.forName(className, true, cl).getDeclaredMethod("_reInit", Context.class);
+          reInit.setAccessible(true);
+          reInit.invoke(null, cx);
+        } catch (NoSuchMethodException e) {
+          // no regexp literals
+        } catch (Exception e) {
+          throw new IllegalStateException(e);
+        }
       }
     }
+  }
 
-    if (url == null) {
-      URL purl = cl.getResource(FileUtil.normalize(fullPath, "package.json"));
-      if (purl != null) {
-        String json = FileUtil.toString(purl.openStream());
-        Object mainModule = ScriptableObject.getProperty(cache.parseJson(json), "main");
-        if (mainModule != UniqueTag.NOT_FOUND && mainModule != null) {
-          return findModule(fullPath, Context.toString(mainModule));
+  Set<String> filenames() {
+    Set<String> filenames = new TreeSet<>();
+    for (Module cached : cache.modules.values()) {
+      String filename = Context.toString(ScriptableObject.getProperty(cached.module, "filename"));
+      filenames.add(filename);
+      // a snapshot refers into the compact form of a json module
+      if (FileUtil.isExtension(filename, ".json")) {
+        String compact = FileUtil.toClassName(filename).replace('.', '/') + ".jsonb";
+        if (cl.getResource(compact) != null) {
+          filenames.add(compact);
         }
       }
-
-      targetPath = FileUtil.normalize(fullPath, "index.js");
-      url = cl.getResource(targetPath);
-      if (url == null) {
-        targetPath = FileUtil.normalize(fullPath, "index.json");
-        url = cl.getResource(targetPath);
-      }
-    }
-
-    if (url != null) {
-      found = compileModule(targetPath, url);
-      cache.put(fullPath, found);
     }
-
-    return found;
+    return filenames;
   }
 
-  private Module compileModule(String fullpath, URL url) throws IOException {
+  private Module compileModule(Context cx, String fullpath, URL url) throws IOException {
     Scriptable module = cx.newObject(global);
     module.setPrototype(global);
     module.setParentScope(null);
 
-    Scriptable exports = LOCAL.get().get(fullpath);
-    if (exports == null) {
-      exports = cx.newObject(global);
+    Scriptable exports = cx.newObject(global);
+
+    Module created = new Module(global, cl, FileUtil.dirname(fullpath), cache, fullpath, module, exports, this, this.main);
+    Module current = cache.putIfAbsent(fullpath, created);
+    if (current != null) {
+      return current;
+    }
+
+    try {
+      load(cx, created, fullpath, url);
+    } catch (IOException | RuntimeException | Error e) {
+      cache.remove(fullpath, created);
+      throw e;
     }
 
-    Module created = new Module(cx, global, cl, FileUtil.dirname(fullpath), cache, fullpath, module, exports, this, this.main);
+    created.setLoaded();
+    return created;
+  }
+
+  static boolean isBuiltin(String path) {
+    return FileSystem.MODULE.equals(path) || PathModule.MODULE.equals(path) || UrlModule.MODULE.equals(path);
+  }
+
+  private Scriptable builtin(String fullpath) {
+    switch (fullpath) {
+    case FileSystem.MODULE:
+      return new FileSystem(global);
+    case PathModule.MODULE:
+      return PathModule.init(global);
+    case UrlModule.MODULE:
+      return new UrlModule(global);
+    default:
+      throw new IllegalArgumentException(fullpath);
+    }
+  }
 
-    if (FileUtil.isExtension(fullpath, ".json")) {
-      String code = FileUtil.toString(url.openStream());
-      created.exports = cache.parseJson(code);
+  private void load(Context cx, Module created, String fullpath, URL url) throws IOException {
+    if (isBuiltin(fullpath)) {
+      created.exports = builtin(fullpath);
+      ScriptableObject.putProperty(created.module, "exports", created.exports);
+    } else if (FileUtil.isExtension(fullpath, ".json")) {
+      if (cache.registry != null && cache.registry.isImmutable(fullpath)) {
+        created.exports = cache.registry.json(cx, cl, fullpath, url);
+      } else {
+        CompactJson compact = CompactJson.load(cl, FileUtil.toClassName(fullpath).replace('.', '/') + ".jsonb");
+        if (compact != null) {
+          created.exports = (Scriptable)compact.root(global, false);
+        } else {
+          String code = FileUtil.toString(url.openStream());
+          created.exports = cache.parseJson(cx, code);
+        }
+      }
+      ScriptableObject.putProperty(created.module, "exports", created.exports);
     } else {
       String className = FileUtil.toClassName(fullpath);
       if (cl.getResource(className.replace('.', '/') + ".class") != null) {
@@ -212,30 +228,27 @@ public class Module extends ScriptableObject implements Function {
         created.exports = (Scriptable)ScriptableObject.getProperty(created.module, "exports");
       }
     }
-
-    created.setLoaded();
-    return created;
   }
 
-  private class ModuleCache {
-    private Map<String, Module> modules = new HashMap<>();
-    private JsonParser jsonParser;
-
-    public ModuleCache() {
-      jsonParser = new JsonParser(cx, global);
-    }
+  private class ModuleCache implements Serializable {
+    private Map<String, Module> modules = new ConcurrentHashMap<>();
+    private transient ModuleRegistry registry;
 
     public Module get(String fullPath) {
       return modules.get(fullPath);
     }
 
-    public void put(String fullPath, Module module) {
-      modules.put(fullPath, module);
+    public Module putIfAbsent(String fullPath, Module module) {
+      return modules.putIfAbsent(fullPath, module);
+    }
+
+    public void remove(String fullPath, Module module) {
+      modules.remove(fullPath, module);
     }
 
-    public Scriptable parseJson(String json) {
+    public Scriptable parseJson(Context cx, String json) {
       try {
-        return (Scriptable)jsonParser.parseValue(json);
+        return (Scriptable)new JsonParser(cx, global).parseValue(json);
       } catch (ParseException e) {
         throw new IllegalStateException(e);
       }
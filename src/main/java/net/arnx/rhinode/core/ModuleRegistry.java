@@ -0,0 +1,65 @@
+package net.arnx.rhinode.core;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.json.JsonParser;
+import org.mozilla.javascript.json.JsonParser.ParseException;
+
+import net.arnx.rhinode.util.FileUtil;
+
+class ModuleRegistry {
+  private final Scriptable scope;
+  private final String[] immutables;
+  private final Map<String, Scriptable> exports = new ConcurrentHashMap<>();
+
+  ModuleRegistry(Scriptable scope, String... immutables) {
+    this.scope = scope;
+    this.immutables = immutables;
+  }
+
+  boolean isImmutable(String fullpath) {
+    if (!FileUtil.isExtension(fullpath, ".json")) {
+      return false;
+    }
+    for (String immutable : immutables) {
+      if (fullpath.startsWith(immutable)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  Scriptable json(Context cx, ClassLoader cl, String fullpath, URL url) throws IOException {
+    Scriptable value = exports.get(fullpath);
+    if (value == null) {
+      CompactJson compact = CompactJson.load(cl, FileUtil.toClassName(fullpath).replace('.', '/') + ".jsonb");
+      if (compact != null) {
+        value = (Scriptable)compact.root(scope, true);
+      } else {
+        try {
+          value = (Scriptable)new JsonParser(cx, scope).parseValue(FileUtil.toString(url.openStream()));
+        } catch (ParseException e) {
+          throw new IllegalStateException(e);
+        }
+        SharedScope.seal(value, Collections.newSetFromMap(new IdentityHashMap<>()));
+      }
+
+      Scriptable current = exports.putIfAbsent(fullpath, value);
+      if (current != null) {
+        value = current;
+      }
+    }
+    return value;
+  }
+
+  int size() {
+    return exports.size();
+  }
+}
@@ -0,0 +1,179 @@
+package net.arnx.rhinode.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.UniqueTag;
+import org.mozilla.javascript.json.JsonParser;
+import org.mozilla.javascript.json.JsonParser.ParseException;
+
+import net.arnx.rhinode.util.FileUtil;
+
+public class ModuleResolver {
+  public static final String MANIFEST = "META-INF/rhinode/resolve.manifest";
+
+  private static final String NOT_FOUND = "";
+
+  private static final Map<ClassLoader, ModuleResolver> RESOLVERS = Collections.synchronizedMap(new WeakHashMap<>());
+
+  static ModuleResolver get(ClassLoader cl) {
+    synchronized (RESOLVERS) {
+      ModuleResolver resolver = RESOLVERS.get(cl);
+      if (resolver == null) {
+        resolver = new ModuleResolver(cl);
+        try {
+          Enumeration<URL> manifests = cl.getResources(MANIFEST);
+          while (manifests.hasMoreElements()) {
+            resolver.load(manifests.nextElement());
+          }
+        } catch (IOException e) {
+          // resolved at runtime
+        }
+        RESOLVERS.put(cl, resolver);
+      }
+      return resolver;
+    }
+  }
+
+  private final ClassLoader cl;
+  private final Map<String, String> requests = new ConcurrentHashMap<>();
+  private final Map<String, String> paths = new ConcurrentHashMap<>();
+  private volatile Scriptable scope;
+
+  public ModuleResolver(ClassLoader cl) {
+    this.cl = cl;
+  }
+
+  public String resolve(Context cx, String basedir, String path) throws IOException {
+    String key = basedir + '\0' + path;
+    String target = requests.get(key);
+    if (target == null) {
+      target = find(cx, basedir, path);
+      if (target == null) {
+        target = NOT_FOUND;
+      }
+      requests.put(key, target);
+    }
+    return !target.isEmpty() ? target : null;
+  }
+
+  public void write(Writer out) throws IOException {
+    for (Map.Entry<String, String> entry : new TreeMap<>(requests).entrySet()) {
+      if (!entry.getValue().isEmpty()) {
+        out.write(entry.getKey().replace('\0', '\t'));
+        out.write('\t');
+        out.write(entry.getValue());
+        out.write('\n');
+      }
+    }
+  }
+
+  private void load(URL url) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] items = line.split("\t", -1);
+        if (items.length == 3) {
+          requests.putIfAbsent(items[0] + '\0' + items[1], items[2]);
+        }
+      }
+    }
+  }
+
+  private String find(Context cx, String basedir, String path) throws IOException {
+    if (path.startsWith("/") || path.startsWith("../") || path.startsWith("./")) {
+      return findPath(cx, FileUtil.normalize(basedir, path));
+    } else if (path.startsWith("classpath:")) {
+      return findPath(cx, FileUtil.normalize("", path.substring(10)));
+    } else if (Module.isBuiltin(path)) {
+      return path;
+    }
+
+    String current = basedir;
+    do {
+      String found = findPath(cx, FileUtil.normalize(FileUtil.normalize(current, "node_modules"), path));
+      if (found != null) {
+        return found;
+      }
+    } while ((current = FileUtil.normalize(current, "..")) != null);
+    return null;
+  }
+
+  private String findPath(Context cx, String fullPath) throws IOException {
+    if (fullPath == null) {
+      return null;
+    }
+
+    String target = paths.get(fullPath);
+    if (target == null) {
+      target = probe(cx, fullPath);
+      if (target == null) {
+        target = NOT_FOUND;
+      }
+      paths.put(fullPath, target);
+    }
+    return !target.isEmpty() ? target : null;
+  }
+
+  private String probe(Context cx, String fullPath) throws IOException {
+    if (FileUtil.isExtension(fullPath, ".js") || FileUtil.isExtension(fullPath, ".json")) {
+      if (cl.getResource(fullPath) != null) {
+        return fullPath;
+      }
+    } else {
+      if (cl.getResource(fullPath + ".js") != null) {
+        return fullPath + ".js";
+      } else if (cl.getResource(fullPath + ".json") != null) {
+        return fullPath + ".json";
+      }
+    }
+
+    URL purl = cl.getResource(FileUtil.normalize(fullPath, "package.json"));
+    if (purl != null) {
+      Object mainModule = ScriptableObject.getProperty(parseJson(cx, FileUtil.toString(purl.openStream())), "main");
+      if (mainModule != UniqueTag.NOT_FOUND && mainModule != null) {
+        String mainPath = FileUtil.normalize(fullPath, Context.toString(mainModule));
+        if (!fullPath.equals(mainPath)) {
+          return findPath(cx, mainPath);
+        }
+      }
+    }
+
+    String targetPath = FileUtil.normalize(fullPath, "index.js");
+    if (cl.getResource(targetPath) != null) {
+      return targetPath;
+    }
+    targetPath = FileUtil.normalize(fullPath, "index.json");
+    if (cl.getResource(targetPath) != null) {
+      return targetPath;
+    }
+    return null;
+  }
+
+  private Scriptable parseJson(Context cx, String json) {
+    Scriptable current = scope;
+    if (current == null) {
+      current = cx.initStandardObjects(null, true);
+      scope = current;
+    }
+
+    try {
+      return (Scriptable)new JsonParser(cx, current).parseValue(json);
+    } catch (ParseException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,690 @@
+package net.arnx.rhinode.core;
+
+import java.io.File;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+
+class PathModule extends HostObject {
+  static final String MODULE = "path";
+
+  private static final int BASENAME = 1;
+  private static final int DIRNAME = 2;
+  private static final int EXTNAME = 3;
+  private static final int IS_ABSOLUTE = 4;
+  private static final int NORMALIZE = 5;
+  private static final int RESOLVE = 6;
+  private static final int JOIN = 7;
+  private static final int RELATIVE = 8;
+
+  static Scriptable init(Scriptable global) {
+    PathModule posix = new PathModule(global, false, false);
+    PathModule win32 = new PathModule(global, true, false);
+    PathModule platform = new PathModule(global, File.separatorChar == '\\', true);
+    for (PathModule module : new PathModule[] { posix, win32, platform }) {
+      ScriptableObject.putProperty(module, "posix", posix);
+      ScriptableObject.putProperty(module, "win32", win32);
+    }
+    return platform;
+  }
+
+  private final boolean win32;
+  private final boolean compatible;
+  private final char sep;
+
+  private PathModule(Scriptable global, boolean win32, boolean compatible) {
+    super(global);
+    this.win32 = win32;
+    this.compatible = compatible;
+    this.sep = win32 ? '\\' : '/';
+
+    ScriptableObject.putProperty(this, "sep", String.valueOf(sep));
+    ScriptableObject.putProperty(this, "delimiter", win32 ? ";" : ":");
+    define(this, "basename", BASENAME, 2);
+    define(this, "dirname", DIRNAME, 1);
+    define(this, "extname", EXTNAME, 1);
+    define(this, "isAbsolute", IS_ABSOLUTE, 1);
+    define(this, "normalize", NORMALIZE, 1);
+    define(this, "resolve", RESOLVE, 0);
+    define(this, "join", JOIN, 0);
+    define(this, "relative", RELATIVE, 2);
+  }
+
+  @Override
+  public String getClassName() {
+    return "Path";
+  }
+
+  @Override
+  public Object exec(int id, Context cx, Scriptable thisObj, Object[] args) {
+    switch (id) {
+    case BASENAME: {
+      Object ext = arg(args, 1);
+      if (ext != Undefined.instance && !isString(ext)) {
+        throw ScriptRuntime.typeError("\"ext\" argument must be a string");
+      }
+      return basename(path(args, 0), (ext != Undefined.instance) ? ScriptRuntime.toString(ext) : null);
+    }
+    case DIRNAME:
+      return dirname(path(args, 0));
+    case EXTNAME:
+      return extname(path(args, 0));
+    case IS_ABSOLUTE: {
+      String path = path(args, 0);
+      // path.js accepted both forms on every platform
+      return compatible ? (isAbsolute(path, true) || isAbsolute(path, false)) : isAbsolute(path, win32);
+    }
+    case NORMALIZE:
+      return normalize(path(args, 0));
+    case RESOLVE:
+      return resolve(paths(args));
+    case JOIN:
+      return join(paths(args));
+    case RELATIVE:
+      return relative(path(args, 0), path(args, 1));
+    default:
+      throw new IllegalArgumentException(String.valueOf(id));
+    }
+  }
+
+  private static String path(Object[] args, int index) {
+    Object path = arg(args, index);
+    if (!isString(path)) {
+      throw ScriptRuntime.typeError("Path must be a string. Received " + ScriptRuntime.toString(path));
+    }
+    return ScriptRuntime.toString(path);
+  }
+
+  private static String[] paths(Object[] args) {
+    String[] paths = new String[args.length];
+    for (int i = 0; i < args.length; i++) {
+      paths[i] = path(args, i);
+    }
+    return paths;
+  }
+
+  private boolean isSep(char c) {
+    return c == '/' || (win32 && c == '\\');
+  }
+
+  private static boolean isDeviceRoot(char c) {
+    return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+  }
+
+  private static String cwd() {
+    return System.getProperty("user.dir");
+  }
+
+  String normalizeString(String path, boolean allowAboveRoot) {
+    StringBuilder res = new StringBuilder(path.length());
+    int lastSegmentLength = 0;
+    int lastSlash = -1;
+    int dots = 0;
+    char c = 0;
+    for (int i = 0; i <= path.length(); i++) {
+      if (i < path.length()) {
+        c = path.charAt(i);
+      } else if (isSep(c)) {
+        break;
+      } else {
+        c = '/';
+      }
+
+      if (isSep(c)) {
+        if (lastSlash == i - 1 || dots == 1) {
+          // skip empty and '.' segments
+        } else if (dots == 2) {
+          int len = res.length();
+          if (len < 2 || lastSegmentLength != 2 || res.charAt(len - 1) != '.' || res.charAt(len - 2) != '.') {
+            if (len > 2) {
+              int lastSlashIndex = res.lastIndexOf(String.valueOf(sep));
+              if (lastSlashIndex == -1) {
+                res.setLength(0);
+                lastSegmentLength = 0;
+              } else {
+                res.setLength(lastSlashIndex);
+                lastSegmentLength = res.length() - 1 - res.lastIndexOf(String.valueOf(sep));
+              }
+              lastSlash = i;
+              dots = 0;
+              continue;
+            } else if (len == 2 || len == 1) {
+              res.setLength(0);
+              lastSegmentLength = 0;
+              lastSlash = i;
+              dots = 0;
+              continue;
+            }
+          }
+          if (allowAboveRoot) {
+            if (res.length() > 0) {
+              res.append(sep);
+            }
+            res.append("..");
+            lastSegmentLength = 2;
+          }
+        } else {
+          if (res.length() > 0) {
+            res.append(sep);
+          }
+          res.append(path, lastSlash + 1, i);
+          lastSegmentLength = i - lastSlash - 1;
+        }
+        lastSlash = i;
+        dots = 0;
+      } else if (c == '.' && dots != -1) {
+        dots++;
+      } else {
+        dots = -1;
+      }
+    }
+    return res.toString();
+  }
+
+  boolean isAbsolute(String path, boolean win32) {
+    int len = path.length();
+    if (len == 0) {
+      return false;
+    }
+    char c = path.charAt(0);
+    if (!win32) {
+      return c == '/';
+    }
+    return c == '/' || c == '\\'
+        || (len > 2 && isDeviceRoot(c) && path.charAt(1) == ':' && (path.charAt(2) == '/' || path.charAt(2) == '\\'));
+  }
+
+  String normalize(String path) {
+    int len = path.length();
+    if (len == 0) {
+      return ".";
+    }
+
+    if (!win32) {
+      boolean absolute = path.charAt(0) == '/';
+      String tail = normalizeString(path, !absolute);
+      if (tail.isEmpty() && !absolute) {
+        tail = ".";
+      }
+      if (!tail.isEmpty() && path.charAt(len - 1) == '/') {
+        tail += '/';
+      }
+      return absolute ? "/" + tail : tail;
+    }
+
+    int rootEnd = 0;
+    String device = null;
+    boolean absolute = false;
+    char c = path.charAt(0);
+    if (len > 1) {
+      if (isSep(c)) {
+        absolute = true;
+        rootEnd = 1;
+        if (isSep(path.charAt(1))) {
+          int[] unc = unc(path);
+          if (unc != null) {
+            if (unc[2] == len) {
+              return "\\\\" + path.substring(unc[0], unc[1]) + '\\' + path.substring(unc[3]) + '\\';
+            }
+            device = "\\\\" + path.substring(unc[0], unc[1]) + '\\' + path.substring(unc[3], unc[2]);
+            rootEnd = unc[2];
+          }
+        }
+      } else if (isDeviceRoot(c) && path.charAt(1) == ':') {
+        device = path.substring(0, 2);
+        rootEnd = 2;
+        if (len > 2 && isSep(path.charAt(2))) {
+          absolute = true;
+          rootEnd = 3;
+        }
+      }
+    } else if (isSep(c)) {
+      return "\\";
+    }
+
+    String tail = (rootEnd < len) ? normalizeString(path.substring(rootEnd), !absolute) : "";
+    if (tail.isEmpty() && !absolute) {
+      tail = ".";
+    }
+    if (!tail.isEmpty() && isSep(path.charAt(len - 1))) {
+      tail += '\\';
+    }
+    if (device == null) {
+      return absolute ? "\\" + tail : tail;
+    }
+    return absolute ? device + '\\' + tail : device + tail;
+  }
+
+  // returns { server start, server end, root end, share start } of a \\server\share prefix
+  private int[] unc(String path) {
+    int len = path.length();
+    int j = 2;
+    int last = j;
+    while (j < len && !isSep(path.charAt(j))) {
+      j++;
+    }
+    if (j < len && j != last) {
+      int serverStart = last;
+      int serverEnd = j;
+      last = j;
+      while (j < len && isSep(path.charAt(j))) {
+        j++;
+      }
+      if (j < len && j != last) {
+        last = j;
+        while (j < len && !isSep(path.charAt(j))) {
+          j++;
+        }
+        if (j == len || j != last) {
+          return new int[] { serverStart, serverEnd, j, last };
+        }
+      }
+    }
+    return null;
+  }
+
+  String resolve(String... paths) {
+    if (!win32) {
+      StringBuilder resolved = new StringBuilder();
+      boolean absolute = false;
+      for (int i = paths.length - 1; i >= -1 && !absolute; i--) {
+        String path = (i >= 0) ? paths[i] : cwd();
+        if (path.isEmpty()) {
+          continue;
+        }
+        resolved.insert(0, '/').insert(0, path);
+        absolute = path.charAt(0) == '/';
+      }
+
+      String result = normalizeString(resolved.toString(), !absolute);
+      if (absolute) {
+        return "/" + result;
+      }
+      return !result.isEmpty() ? result : ".";
+    }
+
+    String resolvedDevice = "";
+    StringBuilder resolvedTail = new StringBuilder();
+    boolean resolvedAbsolute = false;
+    for (int i = paths.length - 1; i >= -1; i--) {
+      String path;
+      if (i >= 0) {
+        path = paths[i];
+      } else if (resolvedDevice.isEmpty()) {
+        path = cwd();
+      } else {
+        // each drive has its own current directory on windows
+        path = System.getenv("=" + resolvedDevice);
+        if (path == null) {
+          path = cwd();
+        }
+        if (path.length() < 3 || !path.substring(0, 3).equalsIgnoreCase(resolvedDevice + '\\')) {
+          path = resolvedDevice + '\\';
+        }
+      }
+
+      int len = path.length();
+      if (len == 0) {
+        continue;
+      }
+
+      int rootEnd = 0;
+      String device = "";
+      boolean absolute = false;
+      char c = path.charAt(0);
+      if (len > 1) {
+        if (isSep(c)) {
+          absolute = true;
+          rootEnd = 1;
+          if (isSep(path.charAt(1))) {
+            int[] unc = unc(path);
+            if (unc != null) {
+              device = "\\\\" + path.substring(unc[0], unc[1]) + '\\' + path.substring(unc[3], unc[2]);
+              rootEnd = unc[2];
+            }
+          }
+        } else if (isDeviceRoot(c) && path.charAt(1) == ':') {
+          device = path.substring(0, 2);
+          rootEnd = 2;
+          if (len > 2 && isSep(path.charAt(2))) {
+            absolute = true;
+            rootEnd = 3;
+          }
+        }
+      } else if (isSep(c)) {
+        rootEnd = 1;
+        absolute = true;
+      }
+
+      if (!device.isEmpty() && !resolvedDevice.isEmpty() && !device.equalsIgnoreCase(resolvedDevice)) {
+        continue;
+      }
+      if (resolvedDevice.isEmpty() && !device.isEmpty()) {
+        resolvedDevice = device;
+      }
+      if (!resolvedAbsolute) {
+        resolvedTail.insert(0, '\\').insert(0, path, rootEnd, len);
+        resolvedAbsolute = absolute;
+      }
+      if (!resolvedDevice.isEmpty() && resolvedAbsolute) {
+        break;
+      }
+    }
+
+    String tail = normalizeString(resolvedTail.toString(), !resolvedAbsolute);
+    String result = resolvedDevice + (resolvedAbsolute ? "\\" : "") + tail;
+    return !result.isEmpty() ? result : ".";
+  }
+
+  String join(String... paths) {
+    StringBuilder joined = null;
+    String first = null;
+    for (String path : paths) {
+      if (!path.isEmpty()) {
+        if (joined == null) {
+          joined = new StringBuilder(path);
+          first = path;
+        } else {
+          joined.append(sep).append(path);
+        }
+      }
+    }
+    if (joined == null) {
+      return ".";
+    }
+
+    if (win32) {
+      // keep a leading \\server\share of the first part, but collapse other leading separators
+      boolean needsReplace = true;
+      int slashCount = 0;
+      if (isSep(first.charAt(0))) {
+        slashCount++;
+        if (first.length() > 1 && isSep(first.charAt(1))) {
+          slashCount++;
+          if (first.length() > 2) {
+            if (isSep(first.charAt(2))) {
+              slashCount++;
+            } else {
+              needsReplace = false;
+            }
+          }
+        }
+      }
+      if (needsReplace) {
+        while (slashCount < joined.length() && isSep(joined.charAt(slashCount))) {
+          slashCount++;
+        }
+        if (slashCount >= 2) {
+          joined.replace(0, slashCount, "\\");
+        }
+      }
+    }
+    return normalize(joined.toString());
+  }
+
+  String relative(String from, String to) {
+    if (from.equals(to)) {
+      return "";
+    }
+
+    String fromOrig = resolve(from);
+    String toOrig = resolve(to);
+    if (fromOrig.equals(toOrig)) {
+      return "";
+    }
+
+    from = win32 ? fromOrig.toLowerCase() : fromOrig;
+    to = win32 ? toOrig.toLowerCase() : toOrig;
+    if (from.equals(to)) {
+      return "";
+    }
+
+    int fromStart = 0;
+    while (fromStart < from.length() && from.charAt(fromStart) == sep) {
+      fromStart++;
+    }
+    int fromEnd = from.length();
+    while (fromEnd - 1 > fromStart && from.charAt(fromEnd - 1) == sep) {
+      fromEnd--;
+    }
+    int fromLen = fromEnd - fromStart;
+
+    int toStart = 0;
+    while (toStart < to.length() && to.charAt(toStart) == sep) {
+      toStart++;
+    }
+    int toEnd = to.length();
+    while (toEnd - 1 > toStart && to.charAt(toEnd - 1) == sep) {
+      toEnd--;
+    }
+    int toLen = toEnd - toStart;
+
+    // a drive root such as "c:" is compared as if it ended with a separator
+    int root = win32 ? 2 : 0;
+    int length = Math.min(fromLen, toLen);
+    int lastCommonSep = -1;
+    int i = 0;
+    for (; i <= length; i++) {
+      if (i == length) {
+        if (toLen > length) {
+          if (to.charAt(toStart + i) == sep) {
+            return toOrig.substring(toStart + i + 1, toEnd);
+          } else if (i == root) {
+            return toOrig.substring(toStart + i, toEnd);
+          }
+        }
+        if (fromLen > length) {
+          if (from.charAt(fromStart + i) == sep) {
+            lastCommonSep = i;
+          } else if (i == root) {
+            lastCommonSep = win32 ? 3 : 0;
+          }
+        }
+        break;
+      }
+
+      char c = from.charAt(fromStart + i);
+      if (c != to.charAt(toStart + i)) {
+        break;
+      } else if (c == sep) {
+        lastCommonSep = i;
+      }
+    }
+
+    if (win32 && i != length && lastCommonSep == -1) {
+      // different drives
+      return toOrig;
+    }
+    if (lastCommonSep == -1) {
+      lastCommonSep = 0;
+    }
+
+    StringBuilder out = new StringBuilder();
+    for (i = fromStart + lastCommonSep + 1; i <= fromEnd; i++) {
+      if (i == fromEnd || from.charAt(i) == sep) {
+        if (out.length() > 0) {
+          out.append(sep);
+        }
+        out.append("..");
+      }
+    }
+
+    if (out.length() > 0) {
+      return out.append(toOrig, toStart + lastCommonSep, toEnd).toString();
+    }
+
+    toStart += lastCommonSep;
+    if (toStart < toEnd && toOrig.charAt(toStart) == sep) {
+      toStart++;
+    }
+    return toOrig.substring(toStart, toEnd);
+  }
+
+  String dirname(String path) {
+    int len = path.length();
+    if (len == 0) {
+      return ".";
+    }
+
+    int rootEnd = -1;
+    int offset = 0;
+    char c = path.charAt(0);
+    if (!win32) {
+      if (c == '/') {
+        rootEnd = offset = 1;
+      }
+    } else if (len > 1) {
+      if (isSep(c)) {
+        rootEnd = offset = 1;
+        if (isSep(path.charAt(1))) {
+          int[] unc = unc(path);
+          if (unc != null) {
+            if (unc[2] == len) {
+              return path;
+            }
+            rootEnd = offset = unc[2] + 1;
+          }
+        }
+      } else if (isDeviceRoot(c) && path.charAt(1) == ':') {
+        rootEnd = offset = 2;
+        if (len > 2 && isSep(path.charAt(2))) {
+          rootEnd = offset = 3;
+        }
+      }
+    } else if (isSep(c)) {
+      return path;
+    }
+
+    int end = -1;
+    boolean matchedSlash = true;
+    for (int i = len - 1; i >= Math.max(offset, 1); i--) {
+      if (isSep(path.charAt(i))) {
+        if (!matchedSlash) {
+          end = i;
+          break;
+        }
+      } else {
+        matchedSlash = false;
+      }
+    }
+
+    if (end == -1) {
+      if (rootEnd == -1) {
+        return ".";
+      }
+      end = rootEnd;
+    }
+    if (!win32 && rootEnd == 1 && end == 1) {
+      return "/";
+    }
+    return path.substring(0, end);
+  }
+
+  String basename(String path, String ext) {
+    int start = 0;
+    if (win32 && path.length() >= 2 && isDeviceRoot(path.charAt(0)) && path.charAt(1) == ':') {
+      start = 2;
+    }
+
+    int end = -1;
+    boolean matchedSlash = true;
+    if (ext != null && !ext.isEmpty() && ext.length() <= path.length()) {
+      if (ext.equals(path)) {
+        return "";
+      }
+
+      int extIdx = ext.length() - 1;
+      int firstNonSlashEnd = -1;
+      for (int i = path.length() - 1; i >= start; i--) {
+        char c = path.charAt(i);
+        if (isSep(c)) {
+          if (!matchedSlash) {
+            start = i + 1;
+            break;
+          }
+        } else {
+          if (firstNonSlashEnd == -1) {
+            matchedSlash = false;
+            firstNonSlashEnd = i + 1;
+          }
+          if (extIdx >= 0) {
+            if (c == ext.charAt(extIdx)) {
+              if (--extIdx == -1) {
+                end = i;
+              }
+            } else {
+              extIdx = -1;
+              end = firstNonSlashEnd;
+            }
+          }
+        }
+      }
+
+      if (start == end) {
+        end = firstNonSlashEnd;
+      } else if (end == -1) {
+        end = path.length();
+      }
+      return path.substring(start, end);
+    }
+
+    for (int i = path.length() - 1; i >= start; i--) {
+      if (isSep(path.charAt(i))) {
+        if (!matchedSlash) {
+          start = i + 1;
+          break;
+        }
+      } else if (end == -1) {
+        matchedSlash = false;
+        end = i + 1;
+      }
+    }
+    return (end != -1) ? path.substring(start, end) : "";
+  }
+
+  String extname(String path) {
+    int start = 0;
+    if (win32 && path.length() >= 2 && path.charAt(1) == ':' && isDeviceRoot(path.charAt(0))) {
+      start = 2;
+    }
+
+    int startDot = -1;
+    int startPart = start;
+    int end = -1;
+    boolean matchedSlash = true;
+    // 0: no dot before the last one, 1: another dot was seen, -1: other characters were seen
+    int preDotState = 0;
+    for (int i = path.length() - 1; i >= start; i--) {
+      char c = path.charAt(i);
+      if (isSep(c)) {
+        if (!matchedSlash) {
+          startPart = i + 1;
+          break;
+        }
+        continue;
+      }
+      if (end == -1) {
+        matchedSlash = false;
+        end = i + 1;
+      }
+      if (c == '.') {
+        if (startDot == -1) {
+          startDot = i;
+        } else if (preDotState != 1) {
+          preDotState = 1;
+        }
+      } else if (startDot != -1) {
+        preDotState = -1;
+      }
+    }
+
+    if (startDot == -1 || end == -1 || preDotState == 0
+        || (preDotState == 1 && startDot == end - 1 && startDot == startPart + 1)) {
+      return "";
+    }
+    return path.substring(startDot, end);
+  }
+}
@@ -0,0 +1,392 @@
+package net.arnx.rhinode.core;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mozilla.javascript.BaseFunction;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.TopLevel;
+import org.mozilla.javascript.Undefined;
+
+public class Promise extends ScriptableObject {
+  private static final int PENDING = 0;
+  private static final int FULFILLED = 1;
+  private static final int REJECTED = 2;
+
+  private static final int THEN = 1;
+  private static final int CATCH = 2;
+  private static final int RESOLVE = 3;
+  private static final int REJECT = 4;
+  private static final int ALL = 5;
+  private static final int RACE = 6;
+
+  static void init(Scriptable global, EventLoop loop) {
+    ScriptableObject.defineProperty(global, "Promise", new Constructor(global, loop), ScriptableObject.DONTENUM);
+  }
+
+  static void bind(Scriptable global, EventLoop loop) {
+    Object current = ScriptableObject.getProperty(global, "Promise");
+    if (current instanceof Constructor) {
+      ((Constructor)current).loop = loop;
+    }
+  }
+
+  private final Constructor ctor;
+  private int state = PENDING;
+  private Object result;
+  private List<Reaction> reactions = new ArrayList<>();
+
+  private Promise(Constructor ctor) {
+    this.ctor = ctor;
+  }
+
+  @Override
+  public String getClassName() {
+    return "Promise";
+  }
+
+  private Resolver[] resolvingFunctions() {
+    boolean[] done = new boolean[1];
+    return new Resolver[] {
+      new Resolver(this, done, false),
+      new Resolver(this, done, true)
+    };
+  }
+
+  private void resolve(Context cx, Object value) {
+    if (value == this) {
+      reject(ctor.reason(cx, ScriptRuntime.typeError("Chaining cycle detected for promise")));
+      return;
+    }
+
+    if (value instanceof Scriptable) {
+      Scriptable thenable = (Scriptable)value;
+      Object then;
+      try {
+        then = ScriptableObject.getProperty(thenable, "then");
+      } catch (RhinoException e) {
+        reject(ctor.reason(cx, e));
+        return;
+      }
+
+      if (then instanceof Function) {
+        ctor.loop.enqueue(cx2 -> {
+          Resolver[] resolvers = resolvingFunctions();
+          try {
+            ((Function)then).call(cx2, ctor.getParentScope(), thenable, new Object[] { resolvers[0], resolvers[1] });
+          } catch (RhinoException e) {
+            resolvers[1].call(cx2, ctor.getParentScope(), null, new Object[] { ctor.reason(cx2, e) });
+          }
+        });
+        return;
+      }
+    }
+    settle(FULFILLED, value);
+  }
+
+  private void reject(Object reason) {
+    settle(REJECTED, reason);
+  }
+
+  private void settle(int state, Object result) {
+    if (this.state != PENDING) {
+      return;
+    }
+
+    this.state = state;
+    this.result = result;
+
+    List<Reaction> current = reactions;
+    reactions = null;
+    for (Reaction reaction : current) {
+      schedule(reaction);
+    }
+  }
+
+  private Promise then(Object onFulfilled, Object onRejected) {
+    Promise derived = ctor.newPromise();
+    Reaction reaction = new Reaction(derived, onFulfilled, onRejected);
+    if (state == PENDING) {
+      reactions.add(reaction);
+    } else {
+      schedule(reaction);
+    }
+    return derived;
+  }
+
+  private void schedule(Reaction reaction) {
+    int state = this.state;
+    Object result = this.result;
+    ctor.loop.enqueue(cx -> reaction.run(cx, state, result));
+  }
+
+  private static class Reaction implements Serializable {
+    private final Promise derived;
+    private final Object onFulfilled;
+    private final Object onRejected;
+
+    Reaction(Promise derived, Object onFulfilled, Object onRejected) {
+      this.derived = derived;
+      this.onFulfilled = onFulfilled;
+      this.onRejected = onRejected;
+    }
+
+    void run(Context cx, int state, Object result) {
+      Object handler = (state == FULFILLED) ? onFulfilled : onRejected;
+      if (!(handler instanceof Function)) {
+        derived.settle(state, result);
+        return;
+      }
+
+      Scriptable scope = derived.ctor.getParentScope();
+      Object value;
+      try {
+        value = ((Function)handler).call(cx, scope, undefinedThis(cx, scope), new Object[] { result });
+      } catch (RhinoException e) {
+        derived.reject(derived.ctor.reason(cx, e));
+        return;
+      }
+      derived.resolve(cx, value);
+    }
+  }
+
+  // rhino 1.7.7 has no scriptable undefined, so use the receiver it gives f.call(undefined)
+  private static Scriptable undefinedThis(Context cx, Scriptable scope) {
+    return ScriptRuntime.hasTopCall(cx) ? ScriptRuntime.getTopCallScope(cx) : scope;
+  }
+
+  private static class Constructor extends BaseFunction implements Builtin.Dispatcher {
+    private transient EventLoop loop;
+
+    Constructor(Scriptable global, EventLoop loop) {
+      this.loop = loop;
+      ScriptRuntime.setFunctionProtoAndParent(this, global);
+
+      NativeObject proto = new NativeObject();
+      ScriptRuntime.setBuiltinProtoAndParent(proto, global, TopLevel.Builtins.Object);
+      ScriptableObject.defineProperty(proto, "constructor", this, ScriptableObject.DONTENUM);
+      define(proto, "then", THEN, 2);
+      define(proto, "catch", CATCH, 1);
+      setImmunePrototypeProperty(proto);
+
+      define(this, "resolve", RESOLVE, 1);
+      define(this, "reject", REJECT, 1);
+      define(this, "all", ALL, 1);
+      define(this, "race", RACE, 1);
+    }
+
+    private void define(ScriptableObject target, String name, int id, int arity) {
+      Builtin.define(target, getParentScope(), this, name, id, arity);
+    }
+
+    @Override
+    public String getFunctionName() {
+      return "Promise";
+    }
+
+    @Override
+    public int getArity() {
+      return 1;
+    }
+
+    @Override
+    public int getLength() {
+      return 1;
+    }
+
+    @Override
+    public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+      throw ScriptRuntime.typeError("Promise constructor cannot be invoked without 'new'");
+    }
+
+    @Override
+    public Scriptable construct(Context cx, Scriptable scope, Object[] args) {
+      Object executor = arg(args, 0);
+      if (!(executor instanceof Function)) {
+        throw ScriptRuntime.typeError("Promise resolver " + ScriptRuntime.toString(executor) + " is not a function");
+      }
+
+      Promise promise = newPromise();
+      Resolver[] resolvers = promise.resolvingFunctions();
+      try {
+        ((Function)executor).call(cx, scope, undefinedThis(cx, getParentScope()), new Object[] { resolvers[0], resolvers[1] });
+      } catch (RhinoException e) {
+        resolvers[1].call(cx, scope, null, new Object[] { reason(cx, e) });
+      }
+      return promise;
+    }
+
+    Promise newPromise() {
+      Promise promise = new Promise(this);
+      promise.setPrototype((Scriptable)getPrototypeProperty());
+      promise.setParentScope(getParentScope());
+      return promise;
+    }
+
+    Object reason(Context cx, RhinoException e) {
+      if (e instanceof JavaScriptException) {
+        return ((JavaScriptException)e).getValue();
+      }
+      return ScriptRuntime.wrapException(e, getParentScope(), cx);
+    }
+
+    @Override
+    public Object exec(int id, Context cx, Scriptable thisObj, Object[] args) {
+      switch (id) {
+      case THEN:
+        return self(thisObj, "then").then(arg(args, 0), arg(args, 1));
+      case CATCH: {
+        Object then = ScriptableObject.getProperty(thisObj, "then");
+        if (!(then instanceof Function)) {
+          throw ScriptRuntime.typeError("then is not a function");
+        }
+        return ((Function)then).call(cx, getParentScope(), thisObj, new Object[] { Undefined.instance, arg(args, 0) });
+      }
+      case RESOLVE:
+        return resolve(cx, arg(args, 0));
+      case REJECT: {
+        Promise promise = newPromise();
+        promise.reject(arg(args, 0));
+        return promise;
+      }
+      case ALL:
+        return all(cx, arg(args, 0));
+      case RACE: {
+        Promise promise = newPromise();
+        Resolver[] resolvers = promise.resolvingFunctions();
+        for (Object elem : elements(arg(args, 0))) {
+          resolve(cx, elem).then(resolvers[0], resolvers[1]);
+        }
+        return promise;
+      }
+      default:
+        throw new IllegalStateException("unknown id: " + id);
+      }
+    }
+
+    private Promise self(Scriptable thisObj, String name) {
+      if (!(thisObj instanceof Promise)) {
+        throw ScriptRuntime.typeError("Promise.prototype." + name + " called on incompatible receiver");
+      }
+      return (Promise)thisObj;
+    }
+
+    private Promise resolve(Context cx, Object value) {
+      if (value instanceof Promise && ((Promise)value).ctor == this) {
+        return (Promise)value;
+      }
+      Promise promise = newPromise();
+      promise.resolve(cx, value);
+      return promise;
+    }
+
+    private Promise all(Context cx, Object iterable) {
+      Object[] elements = elements(iterable);
+      Promise promise = newPromise();
+      Resolver[] resolvers = promise.resolvingFunctions();
+      if (elements.length == 0) {
+        promise.resolve(cx, cx.newArray(getParentScope(), 0));
+        return promise;
+      }
+
+      Object[] values = new Object[elements.length];
+      int[] remaining = new int[] { elements.length };
+      for (int i = 0; i < elements.length; i++) {
+        AllElement element = new AllElement(resolvers[0], values, i, remaining);
+        ScriptRuntime.setFunctionProtoAndParent(element, getParentScope());
+        resolve(cx, elements[i]).then(element, resolvers[1]);
+      }
+      return promise;
+    }
+
+    private static Object[] elements(Object iterable) {
+      if (!(iterable instanceof Scriptable)) {
+        throw ScriptRuntime.typeError(ScriptRuntime.toString(iterable) + " is not iterable");
+      }
+
+      Scriptable obj = (Scriptable)iterable;
+      Object[] elements = new Object[(int)ScriptRuntime.toUint32(ScriptableObject.getProperty(obj, "length"))];
+      for (int i = 0; i < elements.length; i++) {
+        Object elem = ScriptableObject.getProperty(obj, i);
+        elements[i] = (elem != Scriptable.NOT_FOUND) ? elem : Undefined.instance;
+      }
+      return elements;
+    }
+
+    private static Object arg(Object[] args, int index) {
+      return (index < args.length) ? args[index] : Undefined.instance;
+    }
+  }
+
+  private static class Resolver extends BaseFunction {
+    private final Promise promise;
+    private final boolean[] done;
+    private final boolean reject;
+
+    Resolver(Promise promise, boolean[] done, boolean reject) {
+      this.promise = promise;
+      this.done = done;
+      this.reject = reject;
+      ScriptRuntime.setFunctionProtoAndParent(this, promise.ctor.getParentScope());
+    }
+
+    @Override
+    public int getArity() {
+      return 1;
+    }
+
+    @Override
+    public int getLength() {
+      return 1;
+    }
+
+    @Override
+    public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+      if (!done[0]) {
+        done[0] = true;
+        Object value = (args.length > 0) ? args[0] : Undefined.instance;
+        if (reject) {
+          promise.reject(value);
+        } else {
+          promise.resolve(cx, value);
+        }
+      }
+      return Undefined.instance;
+    }
+  }
+
+  private static class AllElement extends BaseFunction {
+    private final Resolver resolver;
+    private final Object[] values;
+    private final int index;
+    private final int[] remaining;
+    private boolean done;
+
+    AllElement(Resolver resolver, Object[] values, int index, int[] remaining) {
+      this.resolver = resolver;
+      this.values = values;
+      this.index = index;
+      this.remaining = remaining;
+    }
+
+    @Override
+    public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+      if (!done) {
+        done = true;
+        values[index] = (args.length > 0) ? args[0] : Undefined.instance;
+        if (--remaining[0] == 0) {
+          resolver.call(cx, scope, thisObj, new Object[] { cx.newArray(getParentScope(), values) });
+        }
+      }
+      return Undefined.instance;
+    }
+  }
+}
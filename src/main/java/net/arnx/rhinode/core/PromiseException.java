@@ -1,13 +0,0 @@
-package net.arnx.rhinode.core;
-
-public class PromiseException extends RuntimeException {
-  private Object result;
-
-  public PromiseException(Object result) {
-    this.result = result;
-  }
-
-  public Object getResult() {
-    return result;
-  }
-}
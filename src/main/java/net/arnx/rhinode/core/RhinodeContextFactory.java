@@ -0,0 +1,143 @@
+package net.arnx.rhinode.core;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ContextFactory;
+
+public class RhinodeContextFactory extends ContextFactory {
+  static final RhinodeContextFactory INSTANCE = new RhinodeContextFactory();
+
+  private static final int THRESHOLD = 10000;
+
+  private static final ScheduledThreadPoolExecutor WATCHDOG = new ScheduledThreadPoolExecutor(1, (r) -> {
+    Thread thread = Executors.defaultThreadFactory().newThread(r);
+    thread.setName("rhinode-watchdog");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    WATCHDOG.setRemoveOnCancelPolicy(true);
+  }
+
+  @Override
+  protected Context makeContext() {
+    Context cx = new RhinodeContext(this);
+    cx.setOptimizationLevel(9);
+    // scripts are often compiled before any limit is set (drivers, plugins, required modules),
+    // so every script gets counts. without a budget that costs one call per THRESHOLD instructions
+    cx.setGenerateObserverCount(true);
+    cx.setInstructionObserverThreshold(THRESHOLD);
+    return cx;
+  }
+
+  @Override
+  protected void observeInstructionCount(Context cx, int instructionCount) {
+    if (cx instanceof RhinodeContext) {
+      Budget budget = ((RhinodeContext)cx).budget;
+      if (budget != null) {
+        budget.consume(instructionCount);
+      }
+    }
+  }
+
+  static Budget start(Context cx, long timeout, long instructionLimit) {
+    if (!(cx instanceof RhinodeContext)) {
+      return null;
+    }
+
+    RhinodeContext rcx = (RhinodeContext)cx;
+    Budget previous = rcx.budget;
+    rcx.budget = (timeout > 0 || instructionLimit > 0) ? new Budget(timeout, instructionLimit) : null;
+    return previous;
+  }
+
+  static void check(Context cx) {
+    if (cx instanceof RhinodeContext) {
+      Budget budget = ((RhinodeContext)cx).budget;
+      if (budget != null) {
+        budget.check();
+      }
+    }
+  }
+
+  static void end(Context cx, Budget previous) {
+    if (cx instanceof RhinodeContext) {
+      RhinodeContext rcx = (RhinodeContext)cx;
+      if (rcx.budget != null) {
+        rcx.budget.finish();
+      }
+      rcx.budget = previous;
+    }
+  }
+
+  private static class RhinodeContext extends Context {
+    Budget budget;
+
+    RhinodeContext(ContextFactory factory) {
+      super(factory);
+    }
+  }
+
+  static class Budget {
+    private final long timeout;
+    private final long instructionLimit;
+    private long instructions;
+
+    private final Thread thread = Thread.currentThread();
+    private final ScheduledFuture<?> watchdog;
+    private volatile boolean expired;
+    private boolean finished;
+
+    Budget(long timeout, long instructionLimit) {
+      this.timeout = timeout;
+      this.instructionLimit = instructionLimit;
+      this.watchdog = (timeout > 0) ? WATCHDOG.schedule(this::expire, timeout, TimeUnit.NANOSECONDS) : null;
+    }
+
+    void consume(int instructionCount) {
+      instructions += instructionCount;
+      if (instructionLimit > 0 && instructions > instructionLimit) {
+        throw new LimitExceeded("instruction limit exceeded: " + instructionLimit);
+      }
+      check();
+    }
+
+    void check() {
+      if (expired) {
+        throw new LimitExceeded("timeout for execution: " + timeout / 1000000 + "ms");
+      }
+    }
+
+    // java code does not report instructions, so it is interrupted instead. a backtracking
+    // regexp ignores the interrupt and still runs to the end
+    private synchronized void expire() {
+      if (!finished) {
+        expired = true;
+        thread.interrupt();
+      }
+    }
+
+    synchronized void finish() {
+      finished = true;
+      if (watchdog != null) {
+        watchdog.cancel(false);
+      }
+      if (expired) {
+        // the interrupt was meant for this run only
+        Thread.interrupted();
+      }
+    }
+  }
+
+  // an Error is neither catchable by scripts nor wrapped when it passes through Java calls
+  static class LimitExceeded extends Error {
+    LimitExceeded(String message) {
+      super(message, null, false, false);
+    }
+  }
+}
@@ -5,44 +5,116 @@ import java.io.Reader;
 import java.io.UncheckedIOException;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.function.BiFunction;
 
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.RhinoException;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.Undefined;
 import org.mozilla.javascript.UniqueTag;
+import org.mozilla.javascript.Wrapper;
+
+import net.arnx.rhinode.core.FileSystem.Stat;
+import net.arnx.rhinode.core.RhinodeContextFactory.Budget;
+import net.arnx.rhinode.core.RhinodeContextFactory.LimitExceeded;
 
 public class RhinodeEngine implements AutoCloseable {
-  private Context cx;
-  private Scriptable global;
+  Scriptable global;
+  final ClassLoader cl;
+  final String root;
+  final boolean shared;
+  final EventLoop loop = new EventLoop();
+  private long timeout;
+  private long instructionLimit;
 
   public RhinodeEngine(ClassLoader cl, String root) {
-    cx = Context.enter();
-    cx.setOptimizationLevel(9);
-    global = cx.initStandardObjects(null, true);
+    this(cl, null, root);
+  }
+
+  public RhinodeEngine(SharedScope shared, String root) {
+    this(shared.getClassLoader(), shared, root);
+  }
+
+  private RhinodeEngine(ClassLoader cl, SharedScope shared, String root) {
+    this.cl = cl;
+    this.root = root;
+    this.shared = (shared != null);
+
+    Context cx = enter();
+    try {
+      global = (shared != null) ? shared.newGlobal(cx) : cx.initStandardObjects(null, true);
+
+      Scriptable module = cx.newObject(global);
+      Scriptable exports = cx.newObject(global);
+
+      Module created = new Module(global, cl, root, null, "<main>", module, exports, null, null);
+      created.setLoaded();
+      if (shared != null) {
+        created.share(shared.registry());
+      }
+
+      ScriptableObject.putProperty(global, "require", created);
+      ScriptableObject.putProperty(global, "module", module);
+      ScriptableObject.putProperty(global, "exports", exports);
+
+      if (shared == null) {
+        init("var Java = require('classpath:net/arnx/rhinode/core/nashorn.js')");
+        init("var console = require('classpath:net/arnx/rhinode/core/console.js')");
+        init("var process = require('classpath:net/arnx/rhinode/core/process.js')");
+      }
+      Promise.init(global, loop);
+    } finally {
+      Context.exit();
+    }
+  }
+
+  RhinodeEngine(Scriptable global, ClassLoader cl, String root) {
+    this.global = global;
+    this.cl = cl;
+    this.root = root;
+    this.shared = false;
+    Promise.bind(global, loop);
+  }
 
-    Scriptable module = cx.newObject(global);
-    Scriptable exports = cx.newObject(global);
+  // bounds scripts and interruptible java calls, but not a backtracking regexp
+  public RhinodeEngine timeout(long timeout, TimeUnit unit) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("timeout must not be negative: " + timeout);
+    }
+    this.timeout = unit.toNanos(timeout);
+    return this;
+  }
 
-    Module created = new Module(cx, global, cl, root, null, "<main>", module, exports, null, null);
-    created.setLoaded();
+  public RhinodeEngine instructionLimit(long instructionLimit) {
+    if (instructionLimit < 0) {
+      throw new IllegalArgumentException("instructionLimit must not be negative: " + instructionLimit);
+    }
+    this.instructionLimit = instructionLimit;
+    return this;
+  }
 
-    ScriptableObject.putProperty(global, "require", created);
-    ScriptableObject.putProperty(global, "module", module);
-    ScriptableObject.putProperty(global, "exports", exports);
+  public Object get(String name) {
+    Object value = ScriptableObject.getProperty(global, name);
+    return (value != Scriptable.NOT_FOUND) ? value : null;
+  }
 
-    init("var Java = require('classpath:net/arnx/rhinode/core/nashorn.js')");
-    init("var console = require('classpath:net/arnx/rhinode/core/console.js')");
-    init("var process = require('classpath:net/arnx/rhinode/core/process.js')");
-    init("var Promise = require('classpath:net/arnx/rhinode/core/promise.js')");
+  public void put(String name, Object value) {
+    ScriptableObject.putProperty(global, name, value);
   }
 
   public void init(String script) {
-    cx.evaluateString(global, script, "<init>", 0, null);
+    Context cx = enter();
+    try {
+      cx.evaluateString(global, script, "<init>", 0, null);
+    } finally {
+      Context.exit();
+    }
   }
 
   public Map<String, Object> run(Reader reader, String filename, Map<String, Object> params, Map<String, Class<?>> resultTypes) {
@@ -57,6 +129,14 @@ public class RhinodeEngine implements AutoCloseable {
     return se.result;
   }
 
+  public Map<String, Object> run(Script script, Map<String, Object> params, Map<String, Class<?>> resultTypes) {
+    ScriptExecutor se = new ScriptExecutor(params, resultTypes);
+    se.execute((cx, scope) -> {
+      return script.exec(cx, scope);
+    });
+    return se.result;
+  }
+
   public Object eval(String script) {
     ScriptExecutor se = new ScriptExecutor(Collections.emptyMap(), Collections.emptyMap());
     se.execute((cx, scope) -> {
@@ -65,9 +145,54 @@ public class RhinodeEngine implements AutoCloseable {
     return se.ret;
   }
 
+  public Object eval(Script script) {
+    ScriptExecutor se = new ScriptExecutor(Collections.emptyMap(), Collections.emptyMap());
+    se.execute((cx, scope) -> {
+      return script.exec(cx, scope);
+    });
+    return se.ret;
+  }
+
   @Override
   public void close() {
-    Context.exit();
+    global = null;
+  }
+
+  public static Script compile(String script, String filename) {
+    Context cx = enter();
+    try {
+      return cx.compileString(script, filename, 0, null);
+    } finally {
+      Context.exit();
+    }
+  }
+
+  static Context enter() {
+    Context cx = RhinodeContextFactory.INSTANCE.enterContext();
+    cx.setOptimizationLevel(9);
+    return cx;
+  }
+
+  private static class ScriptError extends JavaScriptException {
+    private final String details;
+
+    public ScriptError(Object value) {
+      super(value, null, 0);
+
+      // resolved eagerly because toString() of a script object needs an entered context
+      String details;
+      try {
+        details = Context.toString(value);
+      } catch (RhinoException e) {
+        details = super.details();
+      }
+      this.details = details;
+    }
+
+    @Override
+    public String details() {
+      return details;
+    }
   }
 
   private class ScriptExecutor {
@@ -82,39 +207,85 @@ public class RhinodeEngine implements AutoCloseable {
     }
 
     public void execute(BiFunction<Context, Scriptable, Object> fn) {
-      Context cx2 = Context.enter();
+      Context cx2 = enter();
       try {
-        cx2.setOptimizationLevel(9);
         Scriptable scope = cx2.newObject(global);
         scope.setPrototype(global);
         scope.setParentScope(null);
 
         for (Map.Entry<String, Object> entry : params.entrySet()) {
-          ScriptableObject.putProperty(scope, entry.getKey(), Context.javaToJS(entry.getValue(), scope));
+          ScriptableObject.putProperty(scope, entry.getKey(), toJS(cx2, scope, entry.getValue()));
         }
 
-        ExecutorService pool = ThreadPoolManager.get();
-
-        ret = fn.apply(cx2, scope);
-
-        ThreadPoolManager.clear();
-        pool.shutdown();
-        if (!pool.awaitTermination(30, TimeUnit.SECONDS)) {
-          throw new IllegalStateException("timeout for execution promises");
+        Budget previous = RhinodeContextFactory.start(cx2, timeout, instructionLimit);
+        Map<String, Stat> previousStats = FileSystem.start(cx2);
+        try {
+          try {
+            ret = fn.apply(cx2, scope);
+            loop.drain(cx2);
+          } finally {
+            // a timeout in java code surfaces as whatever the interrupted call throws
+            RhinodeContextFactory.check(cx2);
+          }
+        } catch (LimitExceeded e) {
+          throw new ScriptLimitException(e.getMessage());
+        } finally {
+          FileSystem.end(cx2, previousStats);
+          RhinodeContextFactory.end(cx2, previous);
+          loop.clear();
         }
+
         result = new LinkedHashMap<>();
         for (Map.Entry<String, Class<?>> entry : resultTypes.entrySet()) {
           Object value =  ScriptableObject.getProperty(scope, entry.getKey());
 
           if (value != null && value != UniqueTag.NOT_FOUND && !(value instanceof Undefined)) {
-            result.put(entry.getKey(), Context.jsToJava(value, entry.getValue()));
+            if (Throwable.class.isAssignableFrom(entry.getValue())) {
+              result.put(entry.getKey(), toThrowable(value));
+            } else {
+              result.put(entry.getKey(), Context.jsToJava(value, entry.getValue()));
+            }
           }
         }
-      } catch (InterruptedException e) {
-        throw new IllegalStateException("cancel for execution promises", e);
       } finally {
         Context.exit();
       }
     }
+
+    private Throwable toThrowable(Object value) {
+      if (value instanceof Wrapper) {
+        Object unwrapped = ((Wrapper)value).unwrap();
+        if (unwrapped instanceof Throwable) {
+          return (Throwable)unwrapped;
+        }
+      } else if (value instanceof Scriptable) {
+        // errors created by ScriptRuntime.wrapException keep the original exception
+        Object cause = ScriptableObject.getProperty((Scriptable)value, "rhinoException");
+        if (cause instanceof Wrapper && ((Wrapper)cause).unwrap() instanceof RhinoException) {
+          return (RhinoException)((Wrapper)cause).unwrap();
+        }
+      }
+      return new ScriptError(value);
+    }
+
+    private Object toJS(Context cx, Scriptable scope, Object value) {
+      if (value instanceof Scriptable) {
+        return value;
+      } else if (value instanceof Map<?, ?>) {
+        Scriptable obj = cx.newObject(scope);
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+          ScriptableObject.putProperty(obj, String.valueOf(entry.getKey()), toJS(cx, scope, entry.getValue()));
+        }
+        return obj;
+      } else if (value instanceof List<?>) {
+        List<?> list = (List<?>)value;
+        Object[] elements = new Object[list.size()];
+        for (int i = 0; i < elements.length; i++) {
+          elements[i] = toJS(cx, scope, list.get(i));
+        }
+        return cx.newArray(scope, elements);
+      }
+      return Context.javaToJS(value, scope);
+    }
   }
 }
@@ -0,0 +1,7 @@
+package net.arnx.rhinode.core;
+
+public class ScriptLimitException extends RuntimeException {
+  public ScriptLimitException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,86 @@
+package net.arnx.rhinode.core;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+public class SharedScope {
+  private final ClassLoader cl;
+  private final ScriptableObject scope;
+  private final ModuleRegistry registry;
+
+  public SharedScope(ClassLoader cl, String... immutables) {
+    this.cl = cl;
+
+    Context cx = RhinodeEngine.enter();
+    try {
+      scope = cx.initStandardObjects(null, true);
+
+      // force the lazily loaded standard objects to be initialized before sealing
+      cx.evaluateString(scope, "RegExp; getClass; java; javax; org; com; edu; net; Packages; JavaAdapter; JavaImporter; Continuation;",
+          "<lazyLoad>", 0, null);
+
+      Scriptable module = cx.newObject(scope);
+      Scriptable exports = cx.newObject(scope);
+
+      Module created = new Module(scope, cl, "", null, "<shared>", module, exports, null, null);
+      created.setLoaded();
+
+      ScriptableObject.putProperty(scope, "require", created);
+      cx.evaluateString(scope, "var Java = require('classpath:net/arnx/rhinode/core/nashorn.js');"
+          + "var console = require('classpath:net/arnx/rhinode/core/console.js');"
+          + "var process = require('classpath:net/arnx/rhinode/core/process.js');",
+          "<shared>", 0, null);
+      ScriptableObject.deleteProperty(scope, "require");
+
+      Set<Object> sealed = Collections.newSetFromMap(new IdentityHashMap<>());
+      seal(ScriptableObject.getProperty(scope, "Java"), sealed);
+      seal(ScriptableObject.getProperty(scope, "console"), sealed);
+      seal(ScriptableObject.getProperty(scope, "process"), sealed);
+      scope.sealObject();
+      registry = new ModuleRegistry(scope, immutables);
+    } finally {
+      Context.exit();
+    }
+  }
+
+  public ClassLoader getClassLoader() {
+    return cl;
+  }
+
+  ModuleRegistry registry() {
+    return registry;
+  }
+
+  Scriptable newGlobal(Context cx) {
+    Scriptable global = cx.newObject(scope);
+    global.setPrototype(scope);
+    global.setParentScope(null);
+    return global;
+  }
+
+  static void seal(Object value, Set<Object> sealed) {
+    if (!(value instanceof ScriptableObject) || !sealed.add(value)) {
+      return;
+    }
+
+    ScriptableObject obj = (ScriptableObject)value;
+    if (obj.isSealed()) {
+      return;
+    }
+
+    for (Object id : obj.getAllIds()) {
+      if (id instanceof String) {
+        seal(obj.get((String)id, obj), sealed);
+      } else if (id instanceof Integer) {
+        seal(obj.get((Integer)id, obj), sealed);
+      }
+    }
+    seal(obj.getPrototype(), sealed);
+    obj.sealObject();
+  }
+}
@@ -0,0 +1,212 @@
+package net.arnx.rhinode.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.serialize.ScriptableInputStream;
+import org.mozilla.javascript.serialize.ScriptableOutputStream;
+
+public class Snapshot {
+  private static final String MAGIC = "rhinode-snapshot";
+  private static final int VERSION = 1;
+  private static final String GLOBAL = "<global>";
+
+  public static void write(RhinodeEngine engine, OutputStream out) throws IOException {
+    if (engine.shared) {
+      throw new IllegalStateException("snapshot is not available for shared scope.");
+    }
+
+    Context cx = RhinodeEngine.enter();
+    try {
+      ScriptableObject global = (ScriptableObject)engine.global;
+      Module require = (Module)global.get("require", global);
+
+      ByteArrayOutputStream payload = new ByteArrayOutputStream();
+      try (ScriptableOutputStream sout = new ScriptableOutputStream(payload, lookup(cx, global))) {
+        sout.addExcludedName(GLOBAL);
+
+        Set<String> standard = new HashSet<>();
+        for (Object id : cx.initStandardObjects(null, true).getAllIds()) {
+          if (!(id instanceof String)) {
+            continue;
+          }
+          String name = (String)id;
+          standard.add(name);
+
+          Object value = ScriptableObject.getProperty(global, name);
+          if (value instanceof Scriptable) {
+            sout.addExcludedName(name);
+            if (ScriptableObject.getProperty((Scriptable)value, "prototype") instanceof Scriptable) {
+              sout.addExcludedName(name + ".prototype");
+            }
+          }
+        }
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        for (Object id : global.getAllIds()) {
+          if (id instanceof String && !standard.contains(id)) {
+            properties.put((String)id, global.get((String)id, global));
+          }
+        }
+
+        sout.writeInt(properties.size());
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+          sout.writeUTF(entry.getKey());
+          sout.writeInt(global.getAttributes(entry.getKey()));
+          sout.writeObject(entry.getValue());
+        }
+      }
+
+      DataOutputStream dout = new DataOutputStream(out);
+      dout.writeUTF(MAGIC);
+      dout.writeInt(VERSION);
+      dout.writeUTF(cx.getImplementationVersion());
+      dout.writeUTF(engine.root);
+
+      Set<String> filenames = require.filenames();
+      dout.writeInt(filenames.size());
+      for (String filename : filenames) {
+        dout.writeUTF(filename);
+        dout.writeUTF(digest(engine.cl, filename));
+      }
+
+      dout.writeInt(payload.size());
+      payload.writeTo(dout);
+      dout.flush();
+    } finally {
+      Context.exit();
+    }
+  }
+
+  public static Snapshot read(ClassLoader cl, String root, InputStream in) throws IOException {
+    DataInputStream din = new DataInputStream(in);
+    if (!MAGIC.equals(din.readUTF()) || din.readInt() != VERSION) {
+      throw new IOException("unknown snapshot format.");
+    }
+
+    Context cx = RhinodeEngine.enter();
+    try {
+      if (!cx.getImplementationVersion().equals(din.readUTF())) {
+        throw new IOException("stale snapshot: rhino version is changed.");
+      }
+    } finally {
+      Context.exit();
+    }
+
+    if (!root.equals(din.readUTF())) {
+      throw new IOException("stale snapshot: root is changed.");
+    }
+
+    int count = din.readInt();
+    for (int i = 0; i < count; i++) {
+      String filename = din.readUTF();
+      if (!din.readUTF().equals(digest(cl, filename))) {
+        throw new IOException("stale snapshot: " + filename + " is changed.");
+      }
+    }
+
+    byte[] payload = new byte[din.readInt()];
+    din.readFully(payload);
+    return new Snapshot(cl, root, payload);
+  }
+
+  private final ClassLoader cl;
+  private final String root;
+  private final byte[] payload;
+
+  private Snapshot(ClassLoader cl, String root, byte[] payload) {
+    this.cl = cl;
+    this.root = root;
+    this.payload = payload;
+  }
+
+  public RhinodeEngine restore() throws IOException {
+    Context cx = RhinodeEngine.enter();
+    try {
+      ScriptableObject global = cx.initStandardObjects(null, true);
+
+      try (ScriptableInputStream sin = new ScriptableInputStream(new ByteArrayInputStream(payload), lookup(cx, global)) {
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+          try {
+            return Class.forName(desc.getName(), false, cl);
+          } catch (ClassNotFoundException e) {
+            return super.resolveClass(desc);
+          }
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+          obj = super.resolveObject(obj);
+          return (obj instanceof CompactJson.Ref) ? ((CompactJson.Ref)obj).resolve(cl) : obj;
+        }
+      }) {
+        int count = sin.readInt();
+        for (int i = 0; i < count; i++) {
+          String name = sin.readUTF();
+          int attributes = sin.readInt();
+          global.defineProperty(name, sin.readObject(), attributes);
+        }
+      } catch (ClassNotFoundException e) {
+        throw new IOException("broken snapshot: " + e.getMessage(), e);
+      }
+
+      ((Module)global.get("require", global)).bind(cx, cl);
+      return new RhinodeEngine(global, cl, root);
+    } finally {
+      Context.exit();
+    }
+  }
+
+  private static Scriptable lookup(Context cx, Scriptable global) {
+    Scriptable lookup = cx.newObject(global);
+    lookup.setPrototype(global);
+    lookup.setParentScope(null);
+    ScriptableObject.putProperty(lookup, GLOBAL, global);
+    return lookup;
+  }
+
+  private static String digest(ClassLoader cl, String filename) throws IOException {
+    URL url = cl.getResource(filename);
+    if (url == null) {
+      return "";
+    }
+
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    try (InputStream in = url.openStream()) {
+      byte[] buf = new byte[8192];
+      int n;
+      while ((n = in.read(buf)) != -1) {
+        md.update(buf, 0, n);
+      }
+    }
+
+    StringBuilder sb = new StringBuilder(64);
+    for (byte b : md.digest()) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+      sb.append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+}
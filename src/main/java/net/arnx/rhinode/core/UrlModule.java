@@ -0,0 +1,384 @@
+package net.arnx.rhinode.core;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.TopLevel;
+import org.mozilla.javascript.Undefined;
+
+class UrlModule extends HostObject {
+  static final String MODULE = "url";
+
+  private static final int PARSE = 1;
+  private static final int FORMAT = 2;
+  private static final int RESOLVE = 3;
+  private static final int TO_STRING = 4;
+
+  private static final String[] FIELDS = {
+      "protocol", "slashes", "auth", "host", "port", "hostname",
+      "hash", "search", "query", "pathname", "path", "href" };
+
+  private final NativeObject urlProto = new NativeObject();
+
+  UrlModule(Scriptable global) {
+    super(global);
+    define(this, "parse", PARSE, 1);
+    define(this, "format", FORMAT, 1);
+    define(this, "resolve", RESOLVE, 2);
+
+    ScriptRuntime.setBuiltinProtoAndParent(urlProto, global, TopLevel.Builtins.Object);
+    define(urlProto, "toString", TO_STRING, 0);
+  }
+
+  @Override
+  public String getClassName() {
+    return "Url";
+  }
+
+  @Override
+  public Object exec(int id, Context cx, Scriptable thisObj, Object[] args) {
+    switch (id) {
+    case PARSE:
+      return parse(url(args, 0));
+    case FORMAT: {
+      Object obj = arg(args, 0);
+      if (isString(obj)) {
+        return format(parse(ScriptRuntime.toString(obj)));
+      } else if (obj instanceof Scriptable) {
+        return format((Scriptable)obj);
+      }
+      throw ScriptRuntime.typeError("url must be string or object");
+    }
+    case RESOLVE:
+      return resolve(url(args, 0), url(args, 1));
+    case TO_STRING: {
+      Url url = (Url)cast(thisObj, Url.class, "toString");
+      StringBuilder sb = new StringBuilder("Url {\n");
+      for (int i = 0; i < FIELDS.length; i++) {
+        Object value = ScriptableObject.getProperty(url, FIELDS[i]);
+        sb.append("  ").append(FIELDS[i]).append(": ");
+        if (value == null || value == Scriptable.NOT_FOUND || value == Undefined.instance) {
+          sb.append("null");
+        } else if (isString(value)) {
+          sb.append('\'').append(ScriptRuntime.toString(value)).append('\'');
+        } else {
+          sb.append(ScriptRuntime.toString(value));
+        }
+        sb.append((i + 1 < FIELDS.length) ? ",\n" : " }");
+      }
+      return sb.toString();
+    }
+    default:
+      throw new IllegalArgumentException(String.valueOf(id));
+    }
+  }
+
+  private static String url(Object[] args, int index) {
+    Object url = arg(args, index);
+    if (!isString(url)) {
+      throw ScriptRuntime.typeError("url must be string");
+    }
+    return ScriptRuntime.toString(url);
+  }
+
+  private Url parse(String href) {
+    Parts parts = new Parts(href);
+
+    String auth = null;
+    String hostname = null;
+    String port = null;
+    if (parts.authority != null) {
+      String hostport = parts.authority;
+      int at = hostport.lastIndexOf('@');
+      if (at != -1) {
+        auth = hostport.substring(0, at);
+        hostport = hostport.substring(at + 1);
+      }
+      int colon = hostport.lastIndexOf(':');
+      if (colon != -1 && colon > hostport.lastIndexOf(']')) {
+        port = hostport.substring(colon + 1);
+        hostport = hostport.substring(0, colon);
+      }
+      hostname = hostport;
+    }
+
+    auth = emptyToNull(auth);
+    hostname = emptyToNull(hostname);
+    port = emptyToNull(port);
+    String query = emptyToNull(parts.query);
+    String pathname = emptyToNull(parts.path);
+
+    Url url = new Url();
+    url.setPrototype(urlProto);
+    url.setParentScope(getParentScope());
+    ScriptableObject.putProperty(url, "protocol", (parts.scheme != null) ? parts.scheme + ':' : null);
+    ScriptableObject.putProperty(url, "slashes", (hostname != null) ? Boolean.TRUE : null);
+    ScriptableObject.putProperty(url, "auth", auth);
+    ScriptableObject.putProperty(url, "host", (port != null) ? ((hostname != null) ? hostname : "") + ':' + port : hostname);
+    ScriptableObject.putProperty(url, "port", port);
+    ScriptableObject.putProperty(url, "hostname", hostname);
+    ScriptableObject.putProperty(url, "hash", (parts.fragment != null && !parts.fragment.isEmpty()) ? '#' + parts.fragment : null);
+    ScriptableObject.putProperty(url, "search", (query != null) ? '?' + query : null);
+    ScriptableObject.putProperty(url, "query", query);
+    ScriptableObject.putProperty(url, "pathname", pathname);
+    ScriptableObject.putProperty(url, "path", (query != null) ? ((pathname != null) ? pathname : "") + '?' + query : pathname);
+    ScriptableObject.putProperty(url, "href", href);
+    return url;
+  }
+
+  private static String format(Scriptable obj) {
+    String protocol = property(obj, "protocol");
+    if (protocol != null && !protocol.endsWith(":")) {
+      protocol += ':';
+    }
+
+    String auth = property(obj, "auth");
+    String host = property(obj, "host");
+    if (host == null) {
+      String hostname = property(obj, "hostname");
+      if (hostname != null) {
+        if (hostname.indexOf(':') != -1 && !hostname.startsWith("[")) {
+          hostname = '[' + hostname + ']';
+        }
+        String port = property(obj, "port");
+        host = (port != null) ? hostname + ':' + port : hostname;
+      }
+    }
+    if (host != null && auth != null) {
+      host = auth + '@' + host;
+    }
+
+    String pathname = property(obj, "pathname");
+    String search = property(obj, "search");
+    if (search == null) {
+      String query = property(obj, "query");
+      if (query != null) {
+        search = '?' + query;
+      }
+    } else if (!search.startsWith("?")) {
+      search = '?' + search;
+    }
+    String hash = property(obj, "hash");
+    if (hash != null && !hash.startsWith("#")) {
+      hash = '#' + hash;
+    }
+
+    StringBuilder sb = new StringBuilder();
+    if (protocol != null) {
+      sb.append(protocol);
+    }
+    Object slashes = ScriptableObject.getProperty(obj, "slashes");
+    if (ScriptRuntime.toBoolean((slashes != Scriptable.NOT_FOUND) ? slashes : null)
+        || (host != null && (protocol == null || isSlashed(protocol)))) {
+      sb.append("//");
+      if (host != null) {
+        sb.append(host);
+      }
+      if (pathname != null && !pathname.isEmpty() && pathname.charAt(0) != '/') {
+        sb.append('/');
+      }
+    } else if (host != null) {
+      sb.append(host);
+    }
+    if (pathname != null) {
+      for (int i = 0; i < pathname.length(); i++) {
+        char c = pathname.charAt(i);
+        if (c == '?') {
+          sb.append("%3F");
+        } else if (c == '#') {
+          sb.append("%23");
+        } else {
+          sb.append(c);
+        }
+      }
+    }
+    if (search != null) {
+      sb.append(search.replace("#", "%23"));
+    }
+    if (hash != null) {
+      sb.append(hash);
+    }
+    return sb.toString();
+  }
+
+  static String resolve(String from, String to) {
+    Parts base = new Parts(from);
+    Parts ref = new Parts(to);
+
+    String scheme;
+    String authority;
+    String path;
+    String query;
+    if (ref.scheme != null) {
+      scheme = ref.scheme;
+      authority = ref.authority;
+      path = removeDotSegments(ref.path);
+      query = ref.query;
+    } else {
+      scheme = base.scheme;
+      if (ref.authority != null) {
+        authority = ref.authority;
+        path = removeDotSegments(ref.path);
+        query = ref.query;
+      } else {
+        authority = base.authority;
+        if (ref.path.isEmpty()) {
+          path = base.path;
+          query = (ref.query != null) ? ref.query : base.query;
+        } else {
+          if (ref.path.charAt(0) == '/') {
+            path = removeDotSegments(ref.path);
+          } else if (base.authority != null && base.path.isEmpty()) {
+            path = removeDotSegments('/' + ref.path);
+          } else {
+            path = removeDotSegments(base.path.substring(0, base.path.lastIndexOf('/') + 1) + ref.path);
+          }
+          query = ref.query;
+        }
+      }
+    }
+
+    // http://host resolves to http://host/ like node does for slashed protocols
+    if (authority != null && path.isEmpty() && scheme != null && isSlashed(scheme + ':')) {
+      path = "/";
+    }
+
+    StringBuilder sb = new StringBuilder(from.length() + to.length());
+    if (scheme != null) {
+      sb.append(scheme).append(':');
+    }
+    if (authority != null) {
+      sb.append("//").append(authority);
+    }
+    sb.append(path);
+    if (query != null) {
+      sb.append('?').append(query);
+    }
+    if (ref.fragment != null) {
+      sb.append('#').append(ref.fragment);
+    }
+    return sb.toString();
+  }
+
+  static String removeDotSegments(String path) {
+    if (path.indexOf('.') == -1) {
+      return path;
+    }
+
+    StringBuilder out = new StringBuilder(path.length());
+    int i = 0;
+    int len = path.length();
+    while (i < len) {
+      if (path.startsWith("../", i)) {
+        i += 3;
+      } else if (path.startsWith("./", i)) {
+        i += 2;
+      } else if (path.startsWith("/./", i)) {
+        i += 2;
+      } else if (i + 2 == len && path.startsWith("/.", i)) {
+        out.append('/');
+        i += 2;
+      } else if (path.startsWith("/../", i) || (i + 3 == len && path.startsWith("/..", i))) {
+        int last = out.lastIndexOf("/");
+        out.setLength(Math.max(last, 0));
+        if (i + 3 == len) {
+          out.append('/');
+        }
+        i += 3;
+      } else if ((i + 1 == len && path.charAt(i) == '.') || (i + 2 == len && path.startsWith("..", i))) {
+        i = len;
+      } else {
+        int next = path.indexOf('/', (path.charAt(i) == '/') ? i + 1 : i);
+        if (next == -1) {
+          next = len;
+        }
+        out.append(path, i, next);
+        i = next;
+      }
+    }
+    return out.toString();
+  }
+
+  private static boolean isSlashed(String protocol) {
+    switch (protocol) {
+    case "http:":
+    case "https:":
+    case "ftp:":
+    case "gopher:":
+    case "file:":
+      return true;
+    default:
+      return false;
+    }
+  }
+
+  private static String property(Scriptable obj, String name) {
+    Object value = ScriptableObject.getProperty(obj, name);
+    if (value == null || value == Scriptable.NOT_FOUND || value == Undefined.instance) {
+      return null;
+    }
+    String result = ScriptRuntime.toString(value);
+    return !result.isEmpty() ? result : null;
+  }
+
+  private static String emptyToNull(String value) {
+    return (value != null && !value.isEmpty()) ? value : null;
+  }
+
+  private static class Parts {
+    String scheme;
+    String authority;
+    String path;
+    String query;
+    String fragment;
+
+    Parts(String url) {
+      int end = url.length();
+      int hash = url.indexOf('#');
+      if (hash != -1) {
+        fragment = url.substring(hash + 1);
+        end = hash;
+      }
+
+      int start = 0;
+      for (int i = 0; i < end; i++) {
+        char c = url.charAt(i);
+        if (c == ':') {
+          if (i > 0) {
+            scheme = url.substring(0, i);
+            start = i + 1;
+          }
+          break;
+        } else if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z'
+            || i > 0 && (c >= '0' && c <= '9' || c == '+' || c == '-' || c == '.'))) {
+          break;
+        }
+      }
+
+      if (url.startsWith("//", start)) {
+        int i = start + 2;
+        while (i < end && url.charAt(i) != '/' && url.charAt(i) != '?') {
+          i++;
+        }
+        authority = url.substring(start + 2, i);
+        start = i;
+      }
+
+      int question = url.indexOf('?', start);
+      if (question != -1 && question < end) {
+        query = url.substring(question + 1, end);
+        end = question;
+      }
+      path = url.substring(start, end);
+    }
+  }
+
+  private static class Url extends ScriptableObject {
+    @Override
+    public String getClassName() {
+      return "Url";
+    }
+  }
+}
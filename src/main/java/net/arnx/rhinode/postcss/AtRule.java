@@ -0,0 +1,27 @@
+package net.arnx.rhinode.postcss;
+
+import org.mozilla.javascript.Scriptable;
+
+public class AtRule extends Container {
+  AtRule(Scriptable node) {
+    super(node);
+  }
+
+  public String name() {
+    return string("name");
+  }
+
+  public AtRule name(String name) {
+    put("name", name);
+    return this;
+  }
+
+  public String params() {
+    return string("params");
+  }
+
+  public AtRule params(String params) {
+    put("params", params);
+    return this;
+  }
+}
@@ -0,0 +1,49 @@
+package net.arnx.rhinode.postcss;
+
+import java.util.concurrent.TimeUnit;
+
+public class BatchResult {
+  private final String from;
+  private final String to;
+  private final PostCSS.Result result;
+  private final Throwable error;
+  private final long time;
+
+  BatchResult(String from, String to, PostCSS.Result result, Throwable error, long time) {
+    this.from = from;
+    this.to = to;
+    this.result = result;
+    this.error = error;
+    this.time = time;
+  }
+
+  public String from() {
+    return from;
+  }
+
+  public String to() {
+    return to;
+  }
+
+  public PostCSS.Result result() {
+    return result;
+  }
+
+  public Throwable error() {
+    return error;
+  }
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+
+  public long time(TimeUnit unit) {
+    return unit.convert(time, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return from + " -> " + to + " (" + TimeUnit.NANOSECONDS.toMillis(time) + "ms)"
+        + ((error != null) ? ": " + error.getMessage() : "");
+  }
+}
@@ -0,0 +1,18 @@
+package net.arnx.rhinode.postcss;
+
+import org.mozilla.javascript.Scriptable;
+
+public class Comment extends Node {
+  Comment(Scriptable node) {
+    super(node);
+  }
+
+  public String text() {
+    return string("text");
+  }
+
+  public Comment text(String text) {
+    put("text", text);
+    return this;
+  }
+}
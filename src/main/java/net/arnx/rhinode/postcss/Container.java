@@ -0,0 +1,140 @@
+package net.arnx.rhinode.postcss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+public abstract class Container extends Node {
+  Container(Scriptable node) {
+    super(node);
+  }
+
+  public List<Node> nodes() {
+    Object nodes = get("nodes");
+    if (!(nodes instanceof Scriptable)) {
+      return Collections.emptyList();
+    }
+
+    int length = length(nodes);
+    List<Node> list = new ArrayList<>(length);
+    for (int i = 0; i < length; i++) {
+      list.add(of(ScriptableObject.getProperty((Scriptable)nodes, i)));
+    }
+    return list;
+  }
+
+  public Node first() {
+    return of(get("first"));
+  }
+
+  public Node last() {
+    return of(get("last"));
+  }
+
+  public int index(Node child) {
+    return ScriptRuntime.toInt32(call("index", child.node));
+  }
+
+  public Container append(Node... nodes) {
+    call("append", unwrap(nodes));
+    return this;
+  }
+
+  public Container prepend(Node... nodes) {
+    call("prepend", unwrap(nodes));
+    return this;
+  }
+
+  public Container insertBefore(Node exist, Node add) {
+    call("insertBefore", exist.node, add.node);
+    return this;
+  }
+
+  public Container insertAfter(Node exist, Node add) {
+    call("insertAfter", exist.node, add.node);
+    return this;
+  }
+
+  public Container removeAll() {
+    call("removeAll");
+    return this;
+  }
+
+  // same bookkeeping as Container#each so that children can be inserted or removed while iterating
+  public void each(Consumer<? super Node> callback) {
+    int id = ScriptRuntime.toInt32(get("lastEach")) + 1;
+    put("lastEach", id);
+    Object indexes = get("indexes");
+    if (!(indexes instanceof Scriptable)) {
+      indexes = Context.getCurrentContext().newObject(ScriptableObject.getTopLevelScope(node));
+      put("indexes", indexes);
+    }
+
+    Scriptable current = (Scriptable)indexes;
+    ScriptableObject.putProperty(current, id, 0);
+    try {
+      while (true) {
+        Object nodes = get("nodes");
+        int index = ScriptRuntime.toInt32(ScriptableObject.getProperty(current, id));
+        if (!(nodes instanceof Scriptable) || index >= length(nodes)) {
+          break;
+        }
+        callback.accept(of(ScriptableObject.getProperty((Scriptable)nodes, index)));
+        ScriptableObject.putProperty(current, id, ScriptRuntime.toInt32(ScriptableObject.getProperty(current, id)) + 1);
+      }
+    } finally {
+      ScriptableObject.deleteProperty(current, id);
+    }
+  }
+
+  public void walk(Consumer<? super Node> callback) {
+    each((child) -> {
+      callback.accept(child);
+      if (child instanceof Container) {
+        ((Container)child).walk(callback);
+      }
+    });
+  }
+
+  public void walkDecls(Consumer<? super Declaration> callback) {
+    walk((child) -> {
+      if (child instanceof Declaration) {
+        callback.accept((Declaration)child);
+      }
+    });
+  }
+
+  public void walkRules(Consumer<? super Rule> callback) {
+    walk((child) -> {
+      if (child instanceof Rule) {
+        callback.accept((Rule)child);
+      }
+    });
+  }
+
+  public void walkAtRules(Consumer<? super AtRule> callback) {
+    walk((child) -> {
+      if (child instanceof AtRule) {
+        callback.accept((AtRule)child);
+      }
+    });
+  }
+
+  public void walkComments(Consumer<? super Comment> callback) {
+    walk((child) -> {
+      if (child instanceof Comment) {
+        callback.accept((Comment)child);
+      }
+    });
+  }
+
+  private static int length(Object nodes) {
+    return ScriptRuntime.toInt32(ScriptableObject.getProperty((Scriptable)nodes, "length"));
+  }
+}
@@ -0,0 +1,38 @@
+package net.arnx.rhinode.postcss;
+
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+
+public class Declaration extends Node {
+  Declaration(Scriptable node) {
+    super(node);
+  }
+
+  public String prop() {
+    return string("prop");
+  }
+
+  public Declaration prop(String prop) {
+    put("prop", prop);
+    return this;
+  }
+
+  public String value() {
+    return string("value");
+  }
+
+  public Declaration value(String value) {
+    put("value", value);
+    return this;
+  }
+
+  public boolean important() {
+    Object important = get("important");
+    return important != null && ScriptRuntime.toBoolean(important);
+  }
+
+  public Declaration important(boolean important) {
+    put("important", important);
+    return this;
+  }
+}
@@ -0,0 +1,79 @@
+package net.arnx.rhinode.postcss;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+public class Metrics {
+  private final long totalTime;
+  private final Timing parse;
+  private final Timing stringify;
+  private final int inputNodes;
+  private final int outputNodes;
+  private final Map<String, Timing> plugins;
+
+  Metrics(long totalTime, Timing parse, Timing stringify, int inputNodes, int outputNodes, Map<String, Timing> plugins) {
+    this.totalTime = totalTime;
+    this.parse = parse;
+    this.stringify = stringify;
+    this.inputNodes = inputNodes;
+    this.outputNodes = outputNodes;
+    this.plugins = Collections.unmodifiableMap(new LinkedHashMap<>(plugins));
+  }
+
+  public long totalTime(TimeUnit unit) {
+    return unit.convert(totalTime, TimeUnit.NANOSECONDS);
+  }
+
+  public Timing parse() {
+    return parse;
+  }
+
+  public Timing stringify() {
+    return stringify;
+  }
+
+  public int inputNodes() {
+    return inputNodes;
+  }
+
+  public int outputNodes() {
+    return outputNodes;
+  }
+
+  public Map<String, Timing> plugins() {
+    return plugins;
+  }
+
+  @Override
+  public String toString() {
+    return "Metrics [totalTime=" + TimeUnit.NANOSECONDS.toMillis(totalTime) + "ms"
+        + ", parse=" + parse + ", stringify=" + stringify
+        + ", inputNodes=" + inputNodes + ", outputNodes=" + outputNodes
+        + ", plugins=" + plugins + "]";
+  }
+
+  public static class Timing {
+    private final long invocations;
+    private final long time;
+
+    Timing(long invocations, long time) {
+      this.invocations = invocations;
+      this.time = time;
+    }
+
+    public long invocations() {
+      return invocations;
+    }
+
+    public long time(TimeUnit unit) {
+      return unit.convert(time, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+      return TimeUnit.NANOSECONDS.toMicros(time) / 1000.0 + "ms/" + invocations;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package net.arnx.rhinode.postcss;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.arnx.rhinode.postcss.Metrics.Timing;
+
+public class MetricsCollector implements MetricsListener, MetricsMXBean {
+  private long processCount;
+  private long errorCount;
+  private long totalTime;
+  private long maxTime;
+  private long lastTime;
+  private long parseTime;
+  private long stringifyTime;
+  private final Map<String, long[]> plugins = new LinkedHashMap<>();
+
+  @Override
+  public synchronized void processed(String from, String to, Metrics metrics, Throwable error) {
+    processCount++;
+    if (error != null) {
+      errorCount++;
+    }
+
+    long time = metrics.totalTime(TimeUnit.NANOSECONDS);
+    totalTime += time;
+    maxTime = Math.max(maxTime, time);
+    lastTime = time;
+    parseTime += metrics.parse().time(TimeUnit.NANOSECONDS);
+    stringifyTime += metrics.stringify().time(TimeUnit.NANOSECONDS);
+    for (Map.Entry<String, Timing> entry : metrics.plugins().entrySet()) {
+      long[] current = plugins.get(entry.getKey());
+      if (current == null) {
+        current = new long[2];
+        plugins.put(entry.getKey(), current);
+      }
+      current[0] += entry.getValue().invocations();
+      current[1] += entry.getValue().time(TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public synchronized long getProcessCount() {
+    return processCount;
+  }
+
+  @Override
+  public synchronized long getErrorCount() {
+    return errorCount;
+  }
+
+  @Override
+  public synchronized long getTotalTime() {
+    return TimeUnit.NANOSECONDS.toMillis(totalTime);
+  }
+
+  @Override
+  public synchronized long getMaxTime() {
+    return TimeUnit.NANOSECONDS.toMillis(maxTime);
+  }
+
+  @Override
+  public synchronized long getLastTime() {
+    return TimeUnit.NANOSECONDS.toMillis(lastTime);
+  }
+
+  @Override
+  public synchronized long getParseTime() {
+    return TimeUnit.NANOSECONDS.toMillis(parseTime);
+  }
+
+  @Override
+  public synchronized long getStringifyTime() {
+    return TimeUnit.NANOSECONDS.toMillis(stringifyTime);
+  }
+
+  @Override
+  public synchronized Map<String, Long> getPluginTimes() {
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (Map.Entry<String, long[]> entry : plugins.entrySet()) {
+      result.put(entry.getKey(), TimeUnit.NANOSECONDS.toMillis(entry.getValue()[1]));
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized Map<String, Long> getPluginInvocations() {
+    Map<String, Long> result = new LinkedHashMap<>();
+    for (Map.Entry<String, long[]> entry : plugins.entrySet()) {
+      result.put(entry.getKey(), entry.getValue()[0]);
+    }
+    return result;
+  }
+
+  @Override
+  public synchronized void reset() {
+    processCount = 0;
+    errorCount = 0;
+    totalTime = 0;
+    maxTime = 0;
+    lastTime = 0;
+    parseTime = 0;
+    stringifyTime = 0;
+    plugins.clear();
+  }
+}
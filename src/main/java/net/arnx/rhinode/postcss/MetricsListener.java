@@ -0,0 +1,5 @@
+package net.arnx.rhinode.postcss;
+
+public interface MetricsListener {
+  void processed(String from, String to, Metrics metrics, Throwable error);
+}
@@ -0,0 +1,25 @@
+package net.arnx.rhinode.postcss;
+
+import java.util.Map;
+
+public interface MetricsMXBean {
+  long getProcessCount();
+
+  long getErrorCount();
+
+  long getTotalTime();
+
+  long getMaxTime();
+
+  long getLastTime();
+
+  long getParseTime();
+
+  long getStringifyTime();
+
+  Map<String, Long> getPluginTimes();
+
+  Map<String, Long> getPluginInvocations();
+
+  void reset();
+}
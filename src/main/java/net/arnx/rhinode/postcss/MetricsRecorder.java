@@ -0,0 +1,69 @@
+package net.arnx.rhinode.postcss;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mozilla.javascript.BaseFunction;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.Undefined;
+
+import net.arnx.rhinode.postcss.Metrics.Timing;
+
+class MetricsRecorder extends BaseFunction {
+  private static final String PARSE = "parse";
+  private static final String STRINGIFY = "stringify";
+
+  private final long start = System.nanoTime();
+  private final Map<String, long[]> timings = new LinkedHashMap<>();
+  private int inputNodes = -1;
+  private int outputNodes = -1;
+
+  MetricsRecorder(Iterable<String> plugins) {
+    for (String plugin : plugins) {
+      timings.put(plugin, new long[2]);
+    }
+  }
+
+  @Override
+  public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+    long now = System.nanoTime() - start;
+    String event = Context.toString(args[0]);
+    String name = Context.toString(args[1]);
+    if ("start".equals(event)) {
+      // handed back with "end", so nested and overlapping calls keep their own start
+      return (double)now;
+    } else if ("end".equals(event)) {
+      long[] timing = timings.get(name);
+      if (timing == null) {
+        timing = new long[2];
+        timings.put(name, timing);
+      }
+      timing[0]++;
+      timing[1] += now - (long)Context.toNumber(args[2]);
+    } else if ("nodes".equals(event)) {
+      int nodes = (int)Context.toNumber(args[2]);
+      if (PARSE.equals(name)) {
+        inputNodes = nodes;
+      } else if (STRINGIFY.equals(name)) {
+        outputNodes = nodes;
+      }
+    }
+    return Undefined.instance;
+  }
+
+  Metrics toMetrics() {
+    Map<String, Timing> plugins = new LinkedHashMap<>();
+    for (Map.Entry<String, long[]> entry : timings.entrySet()) {
+      if (!entry.getKey().equals(PARSE) && !entry.getKey().equals(STRINGIFY)) {
+        plugins.put(entry.getKey(), timing(entry.getKey()));
+      }
+    }
+    return new Metrics(System.nanoTime() - start, timing(PARSE), timing(STRINGIFY), inputNodes, outputNodes, plugins);
+  }
+
+  private Timing timing(String name) {
+    long[] timing = timings.get(name);
+    return (timing != null) ? new Timing(timing[0], timing[1]) : new Timing(0, 0);
+  }
+}
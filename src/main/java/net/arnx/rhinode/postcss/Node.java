@@ -0,0 +1,118 @@
+package net.arnx.rhinode.postcss;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+
+// views of postcss nodes. they are only valid while the plugin that received them is running.
+public abstract class Node {
+  final Scriptable node;
+
+  Node(Scriptable node) {
+    this.node = node;
+  }
+
+  static Node of(Object node) {
+    if (!(node instanceof Scriptable)) {
+      return null;
+    }
+
+    Scriptable target = (Scriptable)node;
+    Object type = ScriptableObject.getProperty(target, "type");
+    switch (String.valueOf(type)) {
+    case "root":
+      return new Root(target);
+    case "rule":
+      return new Rule(target);
+    case "atrule":
+      return new AtRule(target);
+    case "decl":
+      return new Declaration(target);
+    case "comment":
+      return new Comment(target);
+    default:
+      throw new IllegalArgumentException("Unknown node type: " + type);
+    }
+  }
+
+  public String type() {
+    return string("type");
+  }
+
+  public Container parent() {
+    return (Container)of(get("parent"));
+  }
+
+  public Root root() {
+    return (Root)of(call("root"));
+  }
+
+  public Node next() {
+    return of(call("next"));
+  }
+
+  public Node prev() {
+    return of(call("prev"));
+  }
+
+  public Node remove() {
+    call("remove");
+    return this;
+  }
+
+  public Node replaceWith(Node... nodes) {
+    call("replaceWith", unwrap(nodes));
+    return this;
+  }
+
+  public Node cloneBefore() {
+    return of(call("cloneBefore"));
+  }
+
+  public Node cloneAfter() {
+    return of(call("cloneAfter"));
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof Node && ((Node)obj).node == node;
+  }
+
+  @Override
+  public int hashCode() {
+    return System.identityHashCode(node);
+  }
+
+  @Override
+  public String toString() {
+    return ScriptRuntime.toString(call("toString"));
+  }
+
+  Object get(String name) {
+    Object value = ScriptableObject.getProperty(node, name);
+    return (value != Scriptable.NOT_FOUND) ? value : null;
+  }
+
+  String string(String name) {
+    Object value = get(name);
+    return (value != null && !(value instanceof Undefined)) ? ScriptRuntime.toString(value) : null;
+  }
+
+  void put(String name, Object value) {
+    ScriptableObject.putProperty(node, name, value);
+  }
+
+  Object call(String name, Object... args) {
+    return ScriptableObject.callMethod(Context.getCurrentContext(), node, name, args);
+  }
+
+  static Object[] unwrap(Node... nodes) {
+    Object[] args = new Object[nodes.length];
+    for (int i = 0; i < nodes.length; i++) {
+      args[i] = nodes[i].node;
+    }
+    return args;
+  }
+}
@@ -0,0 +1,5 @@
+package net.arnx.rhinode.postcss;
+
+public interface Plugin {
+  void process(Root root);
+}
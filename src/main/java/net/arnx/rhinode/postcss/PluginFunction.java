@@ -0,0 +1,25 @@
+package net.arnx.rhinode.postcss;
+
+import org.mozilla.javascript.BaseFunction;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.Undefined;
+
+class PluginFunction extends BaseFunction {
+  private final Plugin plugin;
+
+  PluginFunction(Plugin plugin) {
+    this.plugin = plugin;
+  }
+
+  @Override
+  public Object call(Context cx, Scriptable scope, Scriptable thisObj, Object[] args) {
+    try {
+      plugin.process((Root)Node.of(args[0]));
+    } catch (RuntimeException e) {
+      // rejects the processing promise instead of escaping the script
+      throw Context.throwAsScriptRuntimeEx(e);
+    }
+    return Undefined.instance;
+  }
+}
@@ -1,24 +1,65 @@
 package net.arnx.rhinode.postcss;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemNotFoundException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.PathMatcher;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.mozilla.javascript.Script;
+
+import net.arnx.rhinode.core.EnginePool;
 import net.arnx.rhinode.core.RhinodeEngine;
+import net.arnx.rhinode.core.ScriptLimitException;
+import net.arnx.rhinode.core.SharedScope;
+import net.arnx.rhinode.core.Snapshot;
+import net.arnx.rhinode.util.BoundedExecutor;
+import net.arnx.rhinode.util.BoundedExecutor.RejectionPolicy;
 import net.arnx.rhinode.util.FileUtil;
 import net.arnx.rhinode.util.JsonWriter;
+import net.arnx.rhinode.util.LruCache;
 
 public class PostCSS implements AutoCloseable {
   public static void main(String[] args) throws IOException {
@@ -26,15 +67,20 @@ public class PostCSS implements AutoCloseable {
       boolean help = false;
       Path srcDir = Paths.get(".");
       String srcFile = null;
-      Path destDir = Paths.get(".");
+      Path destDir = null;
       String destFile = null;
       boolean smap = false;
+      boolean watch = false;
+      Path snapshot = null;
+      int parallelism = Runtime.getRuntime().availableProcessors();
 
       String option = null;
       for (int i = 0; i < args.length; i++) {
         if (args[i].startsWith("-")) {
           if ("-?".equals(args[i])) {
             help = true;
+          } else if ("-w".equals(args[i]) || "--watch".equals(args[i])) {
+            watch = true;
           } else {
             option = args[i];
           }
@@ -47,6 +93,10 @@ public class PostCSS implements AutoCloseable {
             destFile = args[i];
           } else if ("-m".equals(option)) {
             smap = true;
+          } else if ("-p".equals(option)) {
+            parallelism = Integer.parseInt(args[i]);
+          } else if ("--snapshot".equals(option)) {
+            snapshot = Paths.get(args[i]);
           } else {
             throw new IllegalArgumentException("Invalid option: " + option);
           }
@@ -78,19 +128,74 @@ public class PostCSS implements AutoCloseable {
         }
 
         System.out.println("Usage: java " + program + " [OPTIONS]... [src]");
+        System.out.println("  If src is a glob pattern, all matching .css files under the source");
+        System.out.println("  root are processed into the destination root, which must be given.");
         System.out.println("Options:");
         System.out.println("  -s  source root dir");
         System.out.println("  -d  destination root dir");
         System.out.println("  -o  output filename");
         System.out.println("  -m  output source map");
+        System.out.println("  -p  number of parallel engines");
+        System.out.println("  -w, --watch  recompile changed files until interrupted");
+        System.out.println("  --snapshot  write an initialized engine snapshot to the file and exit");
         System.out.println("  -?  this message");
-        System.exit(0);
-      } else {
-        if (srcFile == null) {
-          throw new IllegalStateException("src is required.");
+        return;
+      } else if (snapshot != null) {
+        try (PostCSS postcss = new PostCSS(srcDir.toUri(), (destDir != null) ? destDir : Paths.get("."))) {
+          postcss.use("postcss-cssnext");
+          postcss.use("cssnano");
+          postcss.snapshot(snapshot);
+        }
+      } else if (srcFile == null) {
+        throw new IllegalStateException("src is required.");
+      } else if (watch || isGlob(srcFile)) {
+        if (destFile != null) {
+          throw new IllegalArgumentException("-o is not available for multiple files.");
+        }
+        // outputs would overwrite their own sources
+        if (destDir == null) {
+          throw new IllegalArgumentException("-d is required for multiple files.");
+        }
+        if (srcDir.toAbsolutePath().normalize().equals(destDir.toAbsolutePath().normalize())) {
+          throw new IllegalArgumentException("-d must differ from -s for multiple files.");
         }
 
+        boolean failed = false;
         try (PostCSS postcss = new PostCSS(srcDir.toUri(), destDir)) {
+          postcss.poolSize(parallelism);
+          postcss.use("postcss-cssnext");
+          postcss.use("cssnano");
+          if (smap) {
+            postcss.option(Option.CREATE_SOURCE_MAP, true);
+            postcss.option(Option.SOURCE_MAP_WITH_SOURCES_CONTENT, true);
+            postcss.option(Option.ADD_SOURCE_MAPPING_URL, true);
+          }
+          for (BatchResult result : postcss.processAll(srcFile)) {
+            if (result.isSuccess()) {
+              System.out.println(result);
+            } else {
+              System.err.println(result);
+              failed = true;
+            }
+          }
+
+          if (watch) {
+            try (Watcher watcher = postcss.watch(srcFile, (result) -> {
+              if (result.isSuccess()) {
+                System.out.println(result);
+              } else {
+                System.err.println(result);
+              }
+            })) {
+              watcher.join();
+            }
+          }
+        }
+        if (failed) {
+          System.exit(2);
+        }
+      } else {
+        try (PostCSS postcss = new PostCSS(srcDir.toUri(), (destDir != null) ? destDir : Paths.get("."))) {
           postcss.use("postcss-cssnext");
           postcss.use("cssnano");
           if (smap) {
@@ -112,11 +217,48 @@ public class PostCSS implements AutoCloseable {
     }
   }
 
-  private final RhinodeEngine engine;
+  private static final String MODULES = "net/arnx/rhinode/modules";
+  private static final String SNAPSHOT = "net/arnx/rhinode/postcss/postcss.snapshot";
+  private static final String SNAPSHOT_SETUP = "postcssSetup";
+  private static final String SNAPSHOT_PROCESSOR = "postcssProcessor";
+  private static final String METRICS = "net/arnx/rhinode/postcss/metrics.js";
+
+  private static boolean isGlob(String path) {
+    for (int i = 0; i < path.length(); i++) {
+      char c = path.charAt(i);
+      if (c == '*' || c == '?' || c == '[' || c == '{') {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private final URI srcDir;
   private final Path destDir;
   private Map<String, String> plugins = new LinkedHashMap<>();
+  private Map<String, Plugin> javaPlugins = new HashMap<>();
   private Map<Option<?>, Object> options = new LinkedHashMap<>();
+  private Script driver;
+  private Setup setup;
+  private final Map<RhinodeEngine, Processor> processors = Collections.synchronizedMap(new WeakHashMap<>());
+
+  private int poolSize = 1;
+  private long borrowTimeout = TimeUnit.SECONDS.toNanos(30);
+  private boolean sharedScope = false;
+  private volatile EnginePool<RhinodeEngine> pool;
+  private volatile Snapshot snapshot;
+  private volatile LruCache<String, Result> cache;
+  private long timeout;
+  private long instructionLimit;
+  private boolean metrics;
+  private final List<MetricsListener> listeners = new CopyOnWriteArrayList<>();
+  private ObjectName mbeanName;
+  private Executor executor;
+  private int maxInFlight;
+  private int queueLimit = Integer.MAX_VALUE;
+  private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+  private volatile BoundedExecutor async;
+  private ExecutorService asyncPool;
 
   public PostCSS() {
     this(Paths.get(".").toUri(), Paths.get("."));
@@ -133,42 +275,491 @@ public class PostCSS implements AutoCloseable {
   }
 
   public PostCSS(URI srcDir, Path destDir) {
-    this.engine = new RhinodeEngine(getClass().getClassLoader(), "net/arnx/rhinode/modules");
-    this.engine.init("require('postcss')");
-
     this.srcDir = Objects.requireNonNull(srcDir);
     this.destDir = Objects.requireNonNull(destDir);
   }
 
-  public PostCSS use(String plugin, String options) {
+  public synchronized PostCSS use(String plugin, String options) {
     plugins.put(plugin, options);
+    javaPlugins.remove(plugin);
+    setup = null;
     return this;
   }
 
-  public PostCSS use(String plugin) {
+  public synchronized PostCSS use(String plugin) {
     plugins.put(plugin, null);
+    javaPlugins.remove(plugin);
+    setup = null;
     return this;
   }
 
-  public <T> PostCSS option(PostCSS.Option<T> option, T value) {
+  public synchronized PostCSS use(Plugin plugin) {
+    // every instance is a plugin of its own, even of the same class
+    String name = plugin.getClass().getName();
+    for (int i = 2; plugins.containsKey(name); i++) {
+      name = plugin.getClass().getName() + "#" + i;
+    }
+    plugins.put(name, null);
+    javaPlugins.put(name, plugin);
+    setup = null;
+    return this;
+  }
+
+  public synchronized <T> PostCSS option(PostCSS.Option<T> option, T value) {
     options.put(option, value);
     return this;
   }
 
+  public synchronized PostCSS poolSize(int poolSize) {
+    if (pool != null) {
+      throw new IllegalStateException("engine pool is already started.");
+    }
+    if (poolSize < 1) {
+      throw new IllegalArgumentException("poolSize must be positive: " + poolSize);
+    }
+    this.poolSize = poolSize;
+    return this;
+  }
+
+  public synchronized PostCSS borrowTimeout(long timeout, TimeUnit unit) {
+    if (pool != null) {
+      throw new IllegalStateException("engine pool is already started.");
+    }
+    this.borrowTimeout = unit.toNanos(timeout);
+    return this;
+  }
+
+  public synchronized PostCSS sharedScope(boolean sharedScope) {
+    if (pool != null) {
+      throw new IllegalStateException("engine pool is already started.");
+    }
+    this.sharedScope = sharedScope;
+    return this;
+  }
+
+  public synchronized PostCSS metrics(boolean metrics) {
+    if (this.metrics != metrics) {
+      this.metrics = metrics;
+      setup = null;
+    }
+    return this;
+  }
+
+  public synchronized PostCSS listener(MetricsListener listener) {
+    listeners.add(Objects.requireNonNull(listener));
+    return metrics(true);
+  }
+
+  public synchronized PostCSS registerMBean(String name) {
+    if (mbeanName != null) {
+      throw new IllegalStateException("mbean is already registered: " + mbeanName);
+    }
+
+    MetricsCollector collector = new MetricsCollector();
+    try {
+      ObjectName objectName = new ObjectName("net.arnx.rhinode:type=PostCSS,name=" + ObjectName.quote(name));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(collector, objectName);
+      mbeanName = objectName;
+    } catch (JMException e) {
+      throw new IllegalStateException("mbean is not registered: " + name, e);
+    }
+    return listener(collector);
+  }
+
+  public synchronized PostCSS timeout(long timeout, TimeUnit unit) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException("timeout must not be negative: " + timeout);
+    }
+    this.timeout = unit.toNanos(timeout);
+    return this;
+  }
+
+  public synchronized PostCSS instructionLimit(long instructionLimit) {
+    if (instructionLimit < 0) {
+      throw new IllegalArgumentException("instructionLimit must not be negative: " + instructionLimit);
+    }
+    this.instructionLimit = instructionLimit;
+    return this;
+  }
+
+  public synchronized PostCSS executor(Executor executor) {
+    if (async != null) {
+      throw new IllegalStateException("async executor is already started.");
+    }
+    this.executor = Objects.requireNonNull(executor);
+    return this;
+  }
+
+  public synchronized PostCSS maxInFlight(int maxInFlight) {
+    if (async != null) {
+      throw new IllegalStateException("async executor is already started.");
+    }
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
+    this.maxInFlight = maxInFlight;
+    return this;
+  }
+
+  public synchronized PostCSS queueLimit(int queueLimit) {
+    if (async != null) {
+      throw new IllegalStateException("async executor is already started.");
+    }
+    if (queueLimit < 0) {
+      throw new IllegalArgumentException("queueLimit must not be negative: " + queueLimit);
+    }
+    this.queueLimit = queueLimit;
+    return this;
+  }
+
+  public synchronized PostCSS rejectionPolicy(RejectionPolicy rejectionPolicy) {
+    if (async != null) {
+      throw new IllegalStateException("async executor is already started.");
+    }
+    this.rejectionPolicy = Objects.requireNonNull(rejectionPolicy);
+    return this;
+  }
+
+  public synchronized PostCSS cache(int maxSize, long maxWeight) {
+    cache = new LruCache<>(maxSize, maxWeight, (result) -> {
+      return (result.css != null ? result.css.length() : 0)
+          + result.mapWeight();
+    });
+    return this;
+  }
+
+  public LruCache.Stats cacheStats() {
+    LruCache<String, Result> current = cache;
+    return (current != null) ? current.stats() : null;
+  }
+
+  public PostCSS warmup() {
+    pool().prestart();
+    return this;
+  }
+
+  public EnginePool.Stats poolStats() {
+    return pool().stats();
+  }
+
+  public BoundedExecutor.Stats asyncStats() {
+    BoundedExecutor current = async;
+    return (current != null) ? current.stats() : null;
+  }
+
+  public void snapshot(Path file) throws IOException {
+    ClassLoader cl = getClass().getClassLoader();
+    RhinodeEngine engine = new RhinodeEngine(cl, MODULES);
+    Setup setup = setup();
+    if (!setup.plugins.isEmpty()) {
+      throw new IllegalStateException("java plugins are not available for snapshot.");
+    }
+    // kept with the setup source, so a restored engine can skip the setup when it matches
+    engine.put(SNAPSHOT_SETUP, setup.source);
+    engine.put(SNAPSHOT_PROCESSOR, setup.eval(engine));
+
+    if (file.getParent() != null) {
+      Files.createDirectories(file.getParent());
+    }
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      Snapshot.write(engine, out);
+    }
+
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+      Snapshot.read(cl, MODULES, in).restore();
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw new IOException("snapshot is not restorable: " + e.getMessage(), e);
+    }
+  }
+
   public Result process(String from, String to) throws IOException {
-    String inputCss = FileUtil.toString(srcDir.resolve(from).toURL().openStream());
+    URI src = srcDir.resolve(from);
+    if ("file".equals(src.getScheme())) {
+      return process(FileUtil.toString(Paths.get(src)), from, to);
+    }
+    return process(FileUtil.toString(src.toURL().openStream()), from, to);
+  }
 
+  public Result process(Path file, String to) throws IOException {
+    String from = file.toString();
+    if ("file".equals(srcDir.getScheme())) {
+      Path root = srcRoot().toAbsolutePath().normalize();
+      Path target = file.toAbsolutePath().normalize();
+      if (target.startsWith(root)) {
+        from = root.relativize(target).toString();
+      }
+    }
+    return process(FileUtil.toString(file), from, to);
+  }
+
+  public Result process(Reader reader, String from, String to) throws IOException {
+    return process(FileUtil.toString(reader), from, to);
+  }
+
+  public Result process(ByteBuffer buf, String from, String to) throws IOException {
+    return process(FileUtil.toString(buf), from, to);
+  }
+
+  public Result process(CharSequence css, String from, String to) throws IOException {
+    String inputCss = css.toString();
+
+    LruCache<String, Result> current = cache;
+    if (current != null) {
+      return current.get(cacheKey(inputCss, from, to), () -> execute(inputCss, from, to));
+    }
+    return execute(inputCss, from, to);
+  }
+
+  public CompletableFuture<Result> processAsync(String from, String to) {
+    return async().submit(() -> process(from, to));
+  }
+
+  public List<BatchResult> processAll(String glob) throws IOException {
+    Path root = srcRoot();
+    Path exclude = destExclusion(root);
+    PathMatcher matcher = root.getFileSystem().getPathMatcher("glob:" + glob);
+    List<String> files = new ArrayList<>();
+    try (Stream<Path> stream = Files.walk(root)) {
+      stream.filter(Files::isRegularFile)
+        .filter(path -> !isExcluded(path, exclude))
+        .map(root::relativize)
+        .filter(matcher::matches)
+        .map(path -> path.toString().replace('\\', '/'))
+        .sorted()
+        .forEach(files::add);
+    }
+    return processAll(files);
+  }
+
+  public List<BatchResult> processAll(Collection<String> files) throws IOException {
+    Map<String, Long> sizes = new HashMap<>();
+    for (String file : files) {
+      long size = 0;
+      try {
+        size = Files.size(Paths.get(srcDir.resolve(file)));
+      } catch (IllegalArgumentException | FileSystemNotFoundException | IOException e) {
+        // unknown size
+      }
+      sizes.put(file, size);
+    }
+
+    List<String> ordered = new ArrayList<>(files);
+    ordered.sort((a, b) -> Long.compare(sizes.get(b), sizes.get(a)));
+
+    int parallelism;
+    synchronized (this) {
+      parallelism = poolSize;
+    }
+    ForkJoinPool executor = new ForkJoinPool(parallelism);
+    try {
+      Map<String, Future<BatchResult>> futures = new HashMap<>();
+      for (String file : ordered) {
+        futures.put(file, executor.submit(() -> processFile(file)));
+      }
+
+      List<BatchResult> results = new ArrayList<>(files.size());
+      for (String file : files) {
+        try {
+          results.add(futures.get(file).get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("cancel for batch processing", e);
+        } catch (ExecutionException e) {
+          results.add(new BatchResult(file, file, null, e.getCause(), 0));
+        }
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  public Watcher watch(String glob, Consumer<BatchResult> listener) throws IOException {
+    return watch(glob, 100, TimeUnit.MILLISECONDS, listener);
+  }
+
+  public Watcher watch(String glob, long debounce, TimeUnit unit, Consumer<BatchResult> listener) throws IOException {
+    Path root = srcRoot();
+    // every write would be seen as a change and trigger the next rebuild
+    if (root.toAbsolutePath().normalize().startsWith(destDir.toAbsolutePath().normalize())) {
+      throw new IllegalStateException("destination root must not contain the watched source root: " + destDir);
+    }
+    return new Watcher(this, root, destExclusion(root), glob, unit.toNanos(debounce), listener);
+  }
+
+  // outputs under the source root are neither compiled again nor watched
+  private Path destExclusion(Path root) {
+    Path src = root.toAbsolutePath().normalize();
+    Path dest = destDir.toAbsolutePath().normalize();
+    return (dest.startsWith(src) && !dest.equals(src)) ? dest : null;
+  }
+
+  static boolean isExcluded(Path path, Path exclude) {
+    return exclude != null && path.toAbsolutePath().normalize().startsWith(exclude);
+  }
+
+  private Path srcRoot() {
+    try {
+      return Paths.get(srcDir);
+    } catch (IllegalArgumentException | FileSystemNotFoundException e) {
+      throw new IllegalStateException("source root is not a directory: " + srcDir, e);
+    }
+  }
+
+  private BatchResult processFile(String file) {
+    long start = System.nanoTime();
+    try {
+      Result result = process(file, file);
+      result.writeCSS();
+      if (result.hasMap()) {
+        result.writeMap();
+      }
+      return new BatchResult(file, file, result, null, System.nanoTime() - start);
+    } catch (Exception e) {
+      return new BatchResult(file, file, null, e, System.nanoTime() - start);
+    }
+  }
+
+  private Result execute(String inputCss, String from, String to) throws IOException {
+    Script script;
+    Setup setup;
+    long currentTimeout;
+    long currentInstructionLimit;
+    List<String> names;
+    MetricsRecorder recorder = null;
     Map<String, Object> params = new HashMap<>();
+    synchronized (this) {
+      if (driver == null) {
+        driver = RhinodeEngine.compile(createDriver(), "<main>");
+      }
+      script = driver;
+      setup = setup();
+      currentTimeout = timeout;
+      currentInstructionLimit = instructionLimit;
+      names = metrics ? new ArrayList<>(plugins.keySet()) : null;
+      params.put("options", createOptions(from, to));
+    }
     params.put("inputCss", inputCss);
 
     Map<String, Class<?>> resultTypes = new HashMap<>();
     resultTypes.put("resultCss", String.class);
-    resultTypes.put("resultMap", String.class);
+    resultTypes.put("resultMap", Object.class);
     resultTypes.put("error", Throwable.class);
 
+    EnginePool<RhinodeEngine> pool = pool();
+    RhinodeEngine engine = pool.borrow();
+    Map<String, Object> result;
+    try {
+      engine.timeout(currentTimeout, TimeUnit.NANOSECONDS).instructionLimit(currentInstructionLimit);
+      params.put("processor", processor(engine, setup));
+      recorder = (names != null) ? new MetricsRecorder(names) : null;
+      params.put("recorder", recorder);
+      result = engine.run(script, params, resultTypes);
+    } catch (ScriptLimitException e) {
+      // the engine may be left in the middle of a plugin
+      pool.invalidate(engine);
+      engine = null;
+      notify(from, to, recorder, e);
+      throw new PostCSSException(e);
+    } finally {
+      if (engine != null) {
+        pool.release(engine);
+      }
+    }
+    Throwable error = (Throwable)result.get("error");
+    Metrics metrics = notify(from, to, recorder, error);
+    if (error != null) {
+      throw new PostCSSException(error);
+    }
+    Object map = result.get("resultMap");
+    return new Result(to, (String)result.get("resultCss"), to + ".map",
+        (map instanceof SourceMapGenerator) ? (SourceMapGenerator)map : null,
+        (map != null && !(map instanceof SourceMapGenerator)) ? map.toString() : null,
+        metrics);
+  }
+
+  private Metrics notify(String from, String to, MetricsRecorder recorder, Throwable error) {
+    if (recorder == null) {
+      return null;
+    }
+
+    Metrics metrics = recorder.toMetrics();
+    for (MetricsListener listener : listeners) {
+      try {
+        listener.processed(from, to, metrics, error);
+      } catch (RuntimeException e) {
+        // ignore
+      }
+    }
+    return metrics;
+  }
+
+  private String cacheKey(String inputCss, String from, String to) {
+    MessageDigest md;
+    try {
+      md = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    update(md, inputCss);
+    update(md, from);
+    update(md, to);
+    synchronized (this) {
+      for (Map.Entry<String, String> entry : plugins.entrySet()) {
+        update(md, entry.getKey());
+        update(md, entry.getValue());
+        Plugin plugin = javaPlugins.get(entry.getKey());
+        if (plugin != null) {
+          update(md, plugin.toString());
+        }
+      }
+      for (Map.Entry<Option<?>, Object> entry : options.entrySet()) {
+        update(md, entry.getKey().toString());
+        update(md, String.valueOf(entry.getValue()));
+      }
+    }
+
+    StringBuilder sb = new StringBuilder(64);
+    for (byte b : md.digest()) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+      sb.append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  private static void update(MessageDigest md, String value) {
+    if (value != null) {
+      md.update(value.getBytes(StandardCharsets.UTF_8));
+    }
+    md.update((byte)0);
+  }
+
+  private synchronized Setup setup() throws IOException {
+    if (setup == null) {
+      List<Plugin> list = new ArrayList<>();
+      String source = createSetup(list);
+      setup = new Setup(source, RhinodeEngine.compile(source, "<setup>"), list);
+    }
+    return setup;
+  }
+
+  private Object processor(RhinodeEngine engine, Setup setup) {
+    Processor current = processors.get(engine);
+    if (current == null || current.setup != setup) {
+      current = new Processor(setup, setup.eval(engine));
+      processors.put(engine, current);
+    }
+    return current.processor;
+  }
+
+  private String createSetup(List<Plugin> list) throws IOException {
     StringBuilder sb = new StringBuilder();
-    sb.append("var that = this;");
-    sb.append("require('postcss')([");
+    if (metrics) {
+      sb.append("this.processor = require('classpath:" + METRICS + "').processor(require('postcss'), [");
+    } else {
+      sb.append("this.processor = require('postcss')([");
+    }
     boolean first = true;
     for (Map.Entry<String, String> entry : plugins.entrySet()) {
       if (first) {
@@ -176,72 +767,245 @@ public class PostCSS implements AutoCloseable {
       } else {
         sb.append(",");
       }
-      sb.append("require(");
-      new JsonWriter(sb).value(entry.getKey());
-      sb.append(")");
-      String poptions = entry.getValue();
-      if (poptions != null) {
-        sb.append("(").append(poptions).append(")");
-      }
-    }
-    sb.append("]).process(inputCss,");
-    JsonWriter json = new JsonWriter(sb);
-    json.beginObject();
-    {
-      json.name("from").value(from.replace('\\', '/'));
-      json.name("to").value(to.replace('\\', '/'));
-      if (Boolean.TRUE.equals(options.get(Option.PARSE_SAFE))) {
-        json.name("safe").value(true);
-      }
-      if (Boolean.TRUE.equals(options.get(Option.CREATE_SOURCE_MAP))) {
-        json.name("map").beginObject();
-        Object mapSourcesContent = options.get(Option.SOURCE_MAP_WITH_SOURCES_CONTENT);
-        if (mapSourcesContent != null) {
-          json.name("sourcesContent").value(mapSourcesContent);
-        }
-        Object mapFrom = options.get(Option.SOURCE_MAP_FROM);
-        if (mapFrom != null) {
-          json.name("from").value(mapFrom);
-        }
-        Object mapAddSourceMappingURL = options.get(Option.ADD_SOURCE_MAPPING_URL);
-        if (Boolean.FALSE.equals(mapAddSourceMappingURL)) {
-          json.name("annotation").value(mapAddSourceMappingURL);
-        } else {
-          Object mapInline = options.get(Option.SOURCE_MAPPING_URL_INLINE);
-          if (Boolean.TRUE.equals(mapInline)) {
-            json.name("inline").value(true);
-          } else {
-            Object mapTo = options.get(Option.SOURCE_MAP_TO);
-            if (mapTo != null) {
-              json.name("annotation").value(mapTo);
-            }
-          }
+      if (metrics) {
+        sb.append("{name:");
+        new JsonWriter(sb).value(entry.getKey());
+        sb.append(",plugin:");
+      }
+      Plugin plugin = javaPlugins.get(entry.getKey());
+      if (plugin != null) {
+        sb.append("javaPlugins[").append(list.size()).append("]");
+        list.add(plugin);
+      } else {
+        sb.append("require(");
+        new JsonWriter(sb).value(entry.getKey());
+        sb.append(")");
+        String poptions = entry.getValue();
+        if (poptions != null) {
+          sb.append("(").append(poptions).append(")");
         }
-        json.endObject();
+      }
+      if (metrics) {
+        sb.append("}");
       }
     }
-    json.endObject();
-    sb.append(").then(function(result){");
-    sb.append("that.resultCss = result.css ? result.css.toString() : null;;");
-    sb.append("that.resultMap = result.map ? result.map.toString() : null;");
+    sb.append("]);");
+    return sb.toString();
+  }
+
+  private String createDriver() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("var that = this;");
+    sb.append("if (recorder) {");
+    sb.append("options = require('classpath:" + METRICS + "').options(require('postcss'), processor, options, recorder);");
+    sb.append("}");
+    sb.append("processor.process(inputCss, options).then(function(result){");
+    sb.append("that.resultCss = result.css ? result.css.toString() : null;");
+    sb.append("that.resultMap = !result.map ? null : (result.map instanceof Packages.net.arnx.rhinode.postcss.SourceMapGenerator) ? result.map : result.map.toString();");
     sb.append("}).catch(function(error) {");
     sb.append("that.error = error;");
     sb.append("});");
-    Map<String, Object> result = engine.run(new StringReader(sb.toString()), "<main>", params, resultTypes);
-    Throwable error = (Throwable)result.get("error");
-    if (error != null) {
-      throw new PostCSSException(error);
+    return sb.toString();
+  }
+
+  private Map<String, Object> createOptions(String from, String to) {
+    Map<String, Object> opts = new LinkedHashMap<>();
+    opts.put("from", from.replace('\\', '/'));
+    opts.put("to", to.replace('\\', '/'));
+    if (Boolean.TRUE.equals(options.get(Option.PARSE_SAFE))) {
+      opts.put("safe", true);
+    }
+    if (Boolean.TRUE.equals(options.get(Option.PARSE_NATIVE_TOKENIZER))) {
+      opts.put("nativeTokenizer", true);
+    }
+    if (Boolean.TRUE.equals(options.get(Option.STRINGIFY_NATIVE))) {
+      opts.put("nativeStringifier", true);
+    }
+    if (Boolean.TRUE.equals(options.get(Option.CREATE_SOURCE_MAP))) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      Object mapSourcesContent = options.get(Option.SOURCE_MAP_WITH_SOURCES_CONTENT);
+      if (mapSourcesContent != null) {
+        map.put("sourcesContent", mapSourcesContent);
+      }
+      Object mapFrom = options.get(Option.SOURCE_MAP_FROM);
+      if (mapFrom != null) {
+        map.put("from", mapFrom);
+      }
+      Object mapAddSourceMappingURL = options.get(Option.ADD_SOURCE_MAPPING_URL);
+      if (Boolean.FALSE.equals(mapAddSourceMappingURL)) {
+        map.put("annotation", mapAddSourceMappingURL);
+      } else {
+        Object mapInline = options.get(Option.SOURCE_MAPPING_URL_INLINE);
+        if (Boolean.TRUE.equals(mapInline)) {
+          map.put("inline", true);
+        } else {
+          Object mapTo = options.get(Option.SOURCE_MAP_TO);
+          if (mapTo != null) {
+            map.put("annotation", mapTo);
+          }
+        }
+      }
+      opts.put("map", map);
+    }
+    return opts;
+  }
+
+  private EnginePool<RhinodeEngine> pool() {
+    EnginePool<RhinodeEngine> current = pool;
+    if (current == null) {
+      synchronized (this) {
+        current = pool;
+        if (current == null) {
+          SharedScope shared = sharedScope ? new SharedScope(getClass().getClassLoader(), MODULES + "/node_modules/caniuse-db/") : null;
+          snapshot = sharedScope ? null : loadSnapshot();
+          current = new EnginePool<>(() -> createEngine(shared), poolSize, borrowTimeout, TimeUnit.NANOSECONDS);
+          pool = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private BoundedExecutor async() {
+    BoundedExecutor current = async;
+    if (current == null) {
+      synchronized (this) {
+        current = async;
+        if (current == null) {
+          int inFlight = (maxInFlight > 0) ? maxInFlight : poolSize;
+          Executor target = executor;
+          if (target == null) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(inFlight, inFlight, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), (r) -> {
+              Thread thread = new Thread(r, "rhinode-postcss-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+            pool.allowCoreThreadTimeOut(true);
+            asyncPool = pool;
+            target = pool;
+          }
+          current = new BoundedExecutor(target, inFlight, queueLimit, rejectionPolicy);
+          async = current;
+        }
+      }
+    }
+    return current;
+  }
+
+  private Snapshot loadSnapshot() {
+    ClassLoader cl = getClass().getClassLoader();
+    URL url = cl.getResource(SNAPSHOT);
+    if (url == null) {
+      return null;
+    }
+
+    try (InputStream in = new BufferedInputStream(url.openStream())) {
+      return Snapshot.read(cl, MODULES, in);
+    } catch (IOException e) {
+      // stale snapshot
+      return null;
+    }
+  }
+
+  private RhinodeEngine createEngine(SharedScope shared) {
+    RhinodeEngine engine = null;
+    Snapshot current = snapshot;
+    if (current != null) {
+      try {
+        engine = current.restore();
+      } catch (IOException e) {
+        // incompatible classes
+        snapshot = null;
+      }
+    }
+
+    if (engine == null) {
+      engine = (shared != null)
+          ? new RhinodeEngine(shared, MODULES)
+          : new RhinodeEngine(getClass().getClassLoader(), MODULES);
+    }
+    try {
+      Setup setup = setup();
+      if (setup.source.equals(engine.get(SNAPSHOT_SETUP))) {
+        processors.put(engine, new Processor(setup, engine.get(SNAPSHOT_PROCESSOR)));
+      } else {
+        processor(engine, setup);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
-    return new Result(to, (String)result.get("resultCss"), to + ".map", (String)result.get("resultMap"));
+    return engine;
   }
 
   @Override
   public void close() {
-    engine.close();
+    synchronized (this) {
+      if (mbeanName != null) {
+        try {
+          ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+        } catch (JMException e) {
+          // already unregistered
+        }
+        mbeanName = null;
+      }
+    }
+
+    BoundedExecutor currentAsync = async;
+    if (currentAsync != null) {
+      currentAsync.close();
+    }
+    synchronized (this) {
+      if (asyncPool != null) {
+        asyncPool.shutdown();
+      }
+    }
+
+    EnginePool<RhinodeEngine> current = pool;
+    if (current != null) {
+      current.close();
+    }
+  }
+
+  private static class Setup {
+    final String source;
+    final Script script;
+    final List<Plugin> plugins;
+
+    Setup(String source, Script script, List<Plugin> plugins) {
+      this.source = source;
+      this.script = script;
+      this.plugins = plugins;
+    }
+
+    Object eval(RhinodeEngine engine) {
+      List<Object> functions = new ArrayList<>(plugins.size());
+      for (Plugin plugin : plugins) {
+        functions.add(new PluginFunction(plugin));
+      }
+      Map<String, Object> params = new HashMap<>();
+      params.put("javaPlugins", functions);
+      Map<String, Class<?>> resultTypes = new HashMap<>();
+      resultTypes.put("processor", Object.class);
+      return engine.run(script, params, resultTypes).get("processor");
+    }
+  }
+
+  private static class Processor {
+    final Setup setup;
+    final Object processor;
+
+    Processor(Setup setup, Object processor) {
+      this.setup = setup;
+      this.processor = processor;
+    }
   }
 
   public static class Option<T> {
     public static Option<Boolean> PARSE_SAFE = new Option<>("PARSE_SAFE", Boolean.class);
+    public static Option<Boolean> PARSE_NATIVE_TOKENIZER = new Option<>("PARSE_NATIVE_TOKENIZER", Boolean.class);
+    public static Option<Boolean> STRINGIFY_NATIVE = new Option<>("STRINGIFY_NATIVE", Boolean.class);
 
     public static Option<Boolean> CREATE_SOURCE_MAP = new Option<>("SOURCE_MAP_CREATION", Boolean.class);
     public static Option<Boolean> SOURCE_MAP_WITH_SOURCES_CONTENT = new Option<>("SOURCE_MAP_WITH_SOURCES_CONTENT", Boolean.class);
@@ -267,13 +1031,17 @@ public class PostCSS implements AutoCloseable {
     private final String cssPath;
     private final String css;
     private final String mapPath;
-    private final String map;
+    private final SourceMapGenerator generator;
+    private volatile String map;
+    private final Metrics metrics;
 
-    private Result(String cssPath, String css, String mapPath, String map) {
+    private Result(String cssPath, String css, String mapPath, SourceMapGenerator generator, String map, Metrics metrics) {
       this.cssPath = cssPath;
       this.css = css;
       this.mapPath = mapPath;
+      this.generator = generator;
       this.map = map;
+      this.metrics = metrics;
     }
 
     public String css() {
@@ -281,7 +1049,29 @@ public class PostCSS implements AutoCloseable {
     }
 
     public String map() {
-      return map;
+      String current = map;
+      if (current == null && generator != null) {
+        current = generator.toString();
+        map = current;
+      }
+      return current;
+    }
+
+    public boolean hasMap() {
+      return generator != null || map != null;
+    }
+
+    // the same for the whole lifetime, whether or not the map is serialized yet
+    long mapWeight() {
+      if (generator != null) {
+        return generator.weight();
+      }
+      String current = map;
+      return (current != null) ? current.length() : 0;
+    }
+
+    public Metrics metrics() {
+      return metrics;
     }
 
     public void writeCSS() throws IOException {
@@ -289,18 +1079,33 @@ public class PostCSS implements AutoCloseable {
         throw new IllegalStateException("css is not created.");
       }
 
-      try (BufferedWriter out = Files.newBufferedWriter(destDir.resolve(cssPath), StandardCharsets.UTF_8)) {
+      Path path = destDir.resolve(cssPath);
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      // not streamed from the stringifier: the AST belongs to a pooled engine that is
+      // released before this Result exists, and cached Results are written again later
+      try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
         out.append(css);
       }
     }
 
     public void writeMap() throws IOException {
-      if (map == null) {
+      if (!hasMap()) {
          throw new IllegalStateException("source map is not created.");
       }
 
-      try (BufferedWriter out = Files.newBufferedWriter(destDir.resolve(mapPath), StandardCharsets.UTF_8)) {
-        out.append(map);
+      Path path = destDir.resolve(mapPath);
+      if (path.getParent() != null) {
+        Files.createDirectories(path.getParent());
+      }
+      try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+        String current = map;
+        if (current != null) {
+          out.append(current);
+        } else {
+          generator.writeTo(out);
+        }
       }
     }
   }
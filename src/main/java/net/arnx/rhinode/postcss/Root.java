@@ -0,0 +1,9 @@
+package net.arnx.rhinode.postcss;
+
+import org.mozilla.javascript.Scriptable;
+
+public class Root extends Container {
+  Root(Scriptable node) {
+    super(node);
+  }
+}
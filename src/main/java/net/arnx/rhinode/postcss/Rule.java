@@ -0,0 +1,18 @@
+package net.arnx.rhinode.postcss;
+
+import org.mozilla.javascript.Scriptable;
+
+public class Rule extends Container {
+  Rule(Scriptable node) {
+    super(node);
+  }
+
+  public String selector() {
+    return string("selector");
+  }
+
+  public Rule selector(String selector) {
+    put("selector", selector);
+    return this;
+  }
+}
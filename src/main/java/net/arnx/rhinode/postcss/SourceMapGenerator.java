@@ -0,0 +1,264 @@
+package net.arnx.rhinode.postcss;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SourceMapGenerator {
+  private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+  private final String file;
+  private final Map<String, Integer> sourceIndexes = new HashMap<>();
+  private final List<String> sources = new ArrayList<>();
+  private Map<String, String> sourcesContent;
+
+  // generated line, generated column, source, original line, original column
+  private int[] mappings = new int[5 * 64];
+  private int size;
+  private boolean sorted = true;
+  private int lastLine = -1;
+  private int lastColumn;
+
+  public SourceMapGenerator(String file) {
+    this.file = file;
+  }
+
+  public void addMapping(String source, int generatedLine, int generatedColumn, int originalLine, int originalColumn) {
+    Integer index = sourceIndexes.get(source);
+    if (index == null) {
+      index = sources.size();
+      sourceIndexes.put(source, index);
+      sources.add(source);
+    }
+
+    if (size * 5 == mappings.length) {
+      mappings = Arrays.copyOf(mappings, mappings.length * 2);
+    }
+    int offset = size * 5;
+    mappings[offset] = generatedLine;
+    mappings[offset + 1] = generatedColumn;
+    mappings[offset + 2] = index;
+    mappings[offset + 3] = originalLine;
+    mappings[offset + 4] = originalColumn;
+
+    if (generatedLine > lastLine || (generatedLine == lastLine && generatedColumn >= lastColumn)) {
+      lastLine = generatedLine;
+      lastColumn = generatedColumn;
+    } else {
+      sorted = false;
+    }
+    size++;
+  }
+
+  public void setSourceContent(String source, String content) {
+    if (content != null) {
+      if (sourcesContent == null) {
+        sourcesContent = new LinkedHashMap<>();
+      }
+      sourcesContent.put(source, content);
+    } else if (sourcesContent != null) {
+      sourcesContent.remove(source);
+      if (sourcesContent.isEmpty()) {
+        sourcesContent = null;
+      }
+    }
+  }
+
+  public void writeTo(Appendable out) throws IOException {
+    out.append("{\"version\":3,\"sources\":[");
+    for (int i = 0; i < sources.size(); i++) {
+      if (i > 0) {
+        out.append(',');
+      }
+      quote(sources.get(i), out);
+    }
+    out.append("],\"names\":[],\"mappings\":\"");
+    writeMappings(out);
+    out.append('"');
+    if (file != null) {
+      out.append(",\"file\":");
+      quote(file, out);
+    }
+    if (sourcesContent != null) {
+      out.append(",\"sourcesContent\":[");
+      for (int i = 0; i < sources.size(); i++) {
+        if (i > 0) {
+          out.append(',');
+        }
+        String content = sourcesContent.get(sources.get(i));
+        if (content != null) {
+          quote(content, out);
+        } else {
+          out.append("null");
+        }
+      }
+      out.append(']');
+    }
+    out.append('}');
+  }
+
+  public String toBase64() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream((int)Math.min(weight() * 4 / 3 + 16, Integer.MAX_VALUE));
+    try (OutputStream base64 = Base64.getEncoder().wrap(bytes);
+        Writer out = new OutputStreamWriter(base64, StandardCharsets.UTF_8)) {
+      writeTo(out);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return new String(bytes.toByteArray(), StandardCharsets.ISO_8859_1);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder((int)Math.min(weight(), Integer.MAX_VALUE));
+    try {
+      writeTo(sb);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return sb.toString();
+  }
+
+  long weight() {
+    long weight = 64 + size * 6L;
+    if (sourcesContent != null) {
+      for (String content : sourcesContent.values()) {
+        weight += content.length();
+      }
+    }
+    return weight;
+  }
+
+  private void writeMappings(Appendable out) throws IOException {
+    Integer[] order = null;
+    if (!sorted) {
+      order = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        order[i] = i;
+      }
+      Arrays.sort(order, (a, b) -> compare(a, b));
+    }
+
+    int previousLine = 1;
+    int previousColumn = 0;
+    int previousSource = 0;
+    int previousOriginalLine = 0;
+    int previousOriginalColumn = 0;
+    int previous = -1;
+    for (int i = 0; i < size; i++) {
+      int current = (order != null) ? order[i] : i;
+      int offset = current * 5;
+      int line = mappings[offset];
+      if (line != previousLine) {
+        previousColumn = 0;
+        while (line != previousLine) {
+          out.append(';');
+          previousLine++;
+        }
+      } else if (previous != -1) {
+        if (compare(current, previous) == 0) {
+          continue;
+        }
+        out.append(',');
+      }
+
+      encode(mappings[offset + 1] - previousColumn, out);
+      previousColumn = mappings[offset + 1];
+      encode(mappings[offset + 2] - previousSource, out);
+      previousSource = mappings[offset + 2];
+      encode(mappings[offset + 3] - 1 - previousOriginalLine, out);
+      previousOriginalLine = mappings[offset + 3] - 1;
+      encode(mappings[offset + 4] - previousOriginalColumn, out);
+      previousOriginalColumn = mappings[offset + 4];
+      previous = current;
+    }
+  }
+
+  private int compare(int a, int b) {
+    int offsetA = a * 5;
+    int offsetB = b * 5;
+    for (int i = 0; i < 5; i++) {
+      int cmp;
+      if (i == 2) {
+        cmp = sources.get(mappings[offsetA + i]).compareTo(sources.get(mappings[offsetB + i]));
+      } else {
+        cmp = Integer.compare(mappings[offsetA + i], mappings[offsetB + i]);
+      }
+      if (cmp != 0) {
+        return cmp;
+      }
+    }
+    return 0;
+  }
+
+  static void encode(int value, Appendable out) throws IOException {
+    int vlq = (value < 0) ? ((-value) << 1) + 1 : value << 1;
+    do {
+      int digit = vlq & 31;
+      vlq >>>= 5;
+      if (vlq > 0) {
+        digit |= 32;
+      }
+      out.append(BASE64[digit]);
+    } while (vlq > 0);
+  }
+
+  // same escapes as JSON.stringify so that the output matches the script implementation
+  private static void quote(String s, Appendable out) throws IOException {
+    out.append('"');
+    int start = 0;
+    int length = s.length();
+    for (int i = 0; i < length; i++) {
+      char c = s.charAt(i);
+      if (c >= ' ' && c != '"' && c != '\\') {
+        continue;
+      }
+
+      if (start < i) {
+        out.append(s, start, i);
+      }
+      start = i + 1;
+      switch (c) {
+      case '"':
+        out.append("\\\"");
+        break;
+      case '\\':
+        out.append("\\\\");
+        break;
+      case '\b':
+        out.append("\\b");
+        break;
+      case '\f':
+        out.append("\\f");
+        break;
+      case '\n':
+        out.append("\\n");
+        break;
+      case '\r':
+        out.append("\\r");
+        break;
+      case '\t':
+        out.append("\\t");
+        break;
+      default:
+        out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+        break;
+      }
+    }
+    if (start < length) {
+      out.append(s, start, length);
+    }
+    out.append('"');
+  }
+}
@@ -0,0 +1,298 @@
+package net.arnx.rhinode.postcss;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+
+public final class Stringifier {
+  private final Context cx;
+  private final Scriptable stringifier;
+  private final StringBuilder out;
+
+  private final Scriptable mapGenerator;
+  private final SourceMapGenerator map;
+  private final Map<Object, String> sourcePaths;
+  private int line = 1;
+  private int column = 1;
+  private int mark;
+
+  private Stringifier(Scriptable stringifier, StringBuilder out, Scriptable mapGenerator, SourceMapGenerator map) {
+    this.cx = Context.getCurrentContext();
+    this.stringifier = stringifier;
+    this.out = out;
+    this.mapGenerator = mapGenerator;
+    this.map = map;
+    this.sourcePaths = (map != null) ? new IdentityHashMap<>() : null;
+  }
+
+  // called from postcss/lib/map-generator.js in place of stringify(root, builder).
+  // stringifier is a script Stringifier used only to detect missing raws.
+  public static String stringify(Scriptable stringifier, Scriptable root) {
+    return stringify(stringifier, root, null, null);
+  }
+
+  public static String stringify(Scriptable stringifier, Scriptable root, Scriptable mapGenerator, SourceMapGenerator map) {
+    StringBuilder sb = new StringBuilder(capacity(root));
+    new Stringifier(stringifier, sb, mapGenerator, map).stringify(root, false);
+    return sb.toString();
+  }
+
+  private static int capacity(Scriptable root) {
+    Object css = get(get(get(root, "source"), "input"), "css");
+    int length = (css instanceof CharSequence) ? ((CharSequence)css).length() : 0;
+    return (int)Math.min(length + (length >> 3) + 16L, Integer.MAX_VALUE - 8);
+  }
+
+  private void stringify(Scriptable node, boolean semicolon) {
+    Object type = get(node, "type");
+    switch (String.valueOf(type)) {
+    case "root":
+      root(node);
+      break;
+    case "comment":
+      comment(node);
+      break;
+    case "decl":
+      decl(node, semicolon);
+      break;
+    case "rule":
+      rule(node);
+      break;
+    case "atrule":
+      atrule(node, semicolon);
+      break;
+    default:
+      throw ScriptRuntime.typeError("Unknown node type: " + ScriptRuntime.toString(type));
+    }
+  }
+
+  private void root(Scriptable node) {
+    body(node);
+    Object after = get(get(node, "raws"), "after");
+    if (ScriptRuntime.toBoolean(after)) {
+      begin(null, null);
+      append(after);
+      end(null, null);
+    }
+  }
+
+  private void comment(Scriptable node) {
+    Object left = raw(node, "left", "commentLeft");
+    Object right = raw(node, "right", "commentRight");
+    begin(node, null);
+    out.append("/*");
+    append(left);
+    append(get(node, "text"));
+    append(right);
+    out.append("*/");
+    end(node, null);
+  }
+
+  private void decl(Scriptable node, boolean semicolon) {
+    Object between = raw(node, "between", "colon");
+    Object value = rawValue(node, "value");
+    begin(node, null);
+    append(get(node, "prop"));
+    append(between);
+    append(value);
+    if (ScriptRuntime.toBoolean(get(node, "important"))) {
+      Object important = get(get(node, "raws"), "important");
+      append(ScriptRuntime.toBoolean(important) ? important : " !important");
+    }
+    if (semicolon) {
+      out.append(';');
+    }
+    end(node, null);
+  }
+
+  private void rule(Scriptable node) {
+    block(node, rawValue(node, "selector"));
+  }
+
+  private void atrule(Scriptable node, boolean semicolon) {
+    Object name = "@" + ScriptRuntime.toString(get(node, "name"));
+    Object params = ScriptRuntime.toBoolean(get(node, "params")) ? rawValue(node, "params") : "";
+
+    Object raws = get(node, "raws");
+    Object afterName = get(raws, "afterName");
+    if (afterName != Undefined.instance) {
+      name = name + ScriptRuntime.toString(afterName);
+    } else if (ScriptRuntime.toBoolean(params)) {
+      name = name + " ";
+    }
+
+    if (ScriptRuntime.toBoolean(get(node, "nodes"))) {
+      block(node, name, params);
+    } else {
+      Object between = get(raws, "between");
+      begin(node, null);
+      append(name);
+      append(params);
+      append(ScriptRuntime.toBoolean(between) ? between : "");
+      if (semicolon) {
+        out.append(';');
+      }
+      end(node, null);
+    }
+  }
+
+  private void body(Scriptable node) {
+    Object nodes = get(node, "nodes");
+    int length = ScriptRuntime.toInt32(get(nodes, "length"));
+
+    int last = length - 1;
+    while (last > 0) {
+      if (!"comment".equals(String.valueOf(get(get(nodes, last), "type")))) {
+        break;
+      }
+      last -= 1;
+    }
+
+    boolean semicolon = ScriptRuntime.toBoolean(raw(node, "semicolon", null));
+    for (int i = 0; i < length; i++) {
+      Scriptable child = (Scriptable)get(nodes, i);
+      Object before = raw(child, "before", null);
+      if (ScriptRuntime.toBoolean(before)) {
+        begin(null, null);
+        append(before);
+        end(null, null);
+      }
+      stringify(child, last != i || semicolon);
+    }
+  }
+
+  private void block(Scriptable node, Object... start) {
+    Object between = raw(node, "between", "beforeOpen");
+    begin(node, "start");
+    for (Object part : start) {
+      append(part);
+    }
+    append(between);
+    out.append('{');
+    end(node, "start");
+
+    Object after;
+    if (ScriptRuntime.toInt32(get(get(node, "nodes"), "length")) != 0) {
+      body(node);
+      after = raw(node, "after", null);
+    } else {
+      after = raw(node, "after", "emptyBody");
+    }
+
+    if (ScriptRuntime.toBoolean(after)) {
+      begin(null, null);
+      append(after);
+      end(null, null);
+    }
+    begin(node, "end");
+    out.append('}');
+    end(node, "end");
+  }
+
+  private Object raw(Scriptable node, String own, String detect) {
+    Object value = get(get(node, "raws"), own);
+    if (value != Undefined.instance) {
+      return value;
+    }
+    return ScriptableObject.callMethod(cx, stringifier, "raw", new Object[] {
+        node, own, (detect != null) ? detect : own });
+  }
+
+  private static Object rawValue(Scriptable node, String prop) {
+    Object value = get(node, prop);
+    Object raw = get(get(node, "raws"), prop);
+    if (ScriptRuntime.toBoolean(raw) && ScriptRuntime.shallowEq(get(raw, "value"), value)) {
+      return get(raw, "raw");
+    }
+    return value;
+  }
+
+  private void append(Object value) {
+    out.append((value instanceof String) ? (String)value : ScriptRuntime.toString(value));
+  }
+
+  // same mappings as the builder callback in MapGenerator.generateString
+  private void begin(Scriptable node, String type) {
+    if (map == null) {
+      return;
+    }
+    mark = out.length();
+    if (node != null && !"end".equals(type)) {
+      Object source = get(node, "source");
+      Object start = get(source, "start");
+      if (ScriptRuntime.toBoolean(source) && ScriptRuntime.toBoolean(start)) {
+        map.addMapping(sourcePath(node, source), line, column - 1,
+            ScriptRuntime.toInt32(get(start, "line")), ScriptRuntime.toInt32(get(start, "column")) - 1);
+      } else {
+        map.addMapping("<no source>", line, column - 1, 1, 0);
+      }
+    }
+  }
+
+  private void end(Scriptable node, String type) {
+    if (map == null) {
+      return;
+    }
+    int length = out.length();
+    int last = -1;
+    for (int i = mark; i < length; i++) {
+      if (out.charAt(i) == '\n') {
+        line++;
+        last = i;
+      }
+    }
+    if (last != -1) {
+      column = length - last;
+    } else {
+      column += length - mark;
+    }
+
+    if (node != null && !"start".equals(type)) {
+      Object source = get(node, "source");
+      Object end = get(source, "end");
+      if (ScriptRuntime.toBoolean(source) && ScriptRuntime.toBoolean(end)) {
+        map.addMapping(sourcePath(node, source), line, column - 1,
+            ScriptRuntime.toInt32(get(end, "line")), ScriptRuntime.toInt32(get(end, "column")));
+      } else {
+        map.addMapping("<no source>", line, column - 1, 1, 0);
+      }
+    }
+  }
+
+  private String sourcePath(Scriptable node, Object source) {
+    Object input = get(source, "input");
+    String path = sourcePaths.get(input);
+    if (path == null) {
+      path = ScriptRuntime.toString(ScriptableObject.callMethod(cx, mapGenerator, "sourcePath", new Object[] { node }));
+      if (input instanceof Scriptable) {
+        sourcePaths.put(input, path);
+      }
+    }
+    return path;
+  }
+
+  private static Object get(Object obj, String name) {
+    if (obj instanceof Scriptable && name != null) {
+      Object value = ScriptableObject.getProperty((Scriptable)obj, name);
+      if (value != Scriptable.NOT_FOUND) {
+        return value;
+      }
+    }
+    return Undefined.instance;
+  }
+
+  private static Object get(Object obj, int index) {
+    if (obj instanceof Scriptable) {
+      Object value = ScriptableObject.getProperty((Scriptable)obj, index);
+      if (value != Scriptable.NOT_FOUND) {
+        return value;
+      }
+    }
+    return Undefined.instance;
+  }
+}
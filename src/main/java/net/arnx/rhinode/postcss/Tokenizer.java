@@ -0,0 +1,335 @@
+package net.arnx.rhinode.postcss;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+public final class Tokenizer {
+  private static final int SINGLE_QUOTE = '\'';
+  private static final int DOUBLE_QUOTE = '"';
+  private static final int BACKSLASH = '\\';
+  private static final int SLASH = '/';
+  private static final int NEWLINE = '\n';
+  private static final int SPACE = ' ';
+  private static final int FEED = '\f';
+  private static final int TAB = '\t';
+  private static final int CR = '\r';
+  private static final int OPEN_SQUARE = '[';
+  private static final int CLOSE_SQUARE = ']';
+  private static final int OPEN_PARENTHESES = '(';
+  private static final int CLOSE_PARENTHESES = ')';
+  private static final int OPEN_CURLY = '{';
+  private static final int CLOSE_CURLY = '}';
+  private static final int SEMICOLON = ';';
+  private static final int ASTERISK = '*';
+  private static final int COLON = ':';
+  private static final int AT = '@';
+
+  private static final boolean[] AT_END = new boolean[128];
+  private static final boolean[] WORD_END = new boolean[128];
+
+  static {
+    for (char c : " \n\t\r\f{()'\"\\;/[]#".toCharArray()) {
+      AT_END[c] = true;
+    }
+    for (char c : " \n\t\r\f(){}:;@!'\"\\][#".toCharArray()) {
+      WORD_END[c] = true;
+    }
+  }
+
+  private Tokenizer() {
+  }
+
+  // called from postcss/lib/parse.js in place of tokenize(input, { ignoreErrors })
+  public static Scriptable tokenize(Scriptable input, boolean ignoreErrors) {
+    Context cx = Context.getCurrentContext();
+    Scriptable scope = ScriptableObject.getTopLevelScope(input);
+    String css = ScriptRuntime.toString(ScriptableObject.getProperty(input, "css"));
+
+    List<Object[]> tokens;
+    try {
+      tokens = tokenize(css, ignoreErrors);
+    } catch (UnclosedException e) {
+      Object error = ScriptableObject.callMethod(cx, input, "error", new Object[] {
+          "Unclosed " + e.what, e.line, e.column });
+      throw new JavaScriptException(error, null, 0);
+    }
+
+    Object[] elements = new Object[tokens.size()];
+    for (int i = 0; i < elements.length; i++) {
+      elements[i] = cx.newArray(scope, tokens.get(i));
+    }
+    return cx.newArray(scope, elements);
+  }
+
+  static List<Object[]> tokenize(String css, boolean ignore) {
+    List<Object[]> tokens = new ArrayList<>(css.length() / 4 + 16);
+
+    int length = css.length();
+    int offset = -1;
+    int line = 1;
+    int pos = 0;
+    int next;
+
+    while (pos < length) {
+      int code = css.charAt(pos);
+
+      if (code == NEWLINE || code == FEED || (code == CR && codeAt(css, pos + 1) != NEWLINE)) {
+        offset = pos;
+        line += 1;
+      }
+
+      switch (code) {
+      case NEWLINE:
+      case SPACE:
+      case TAB:
+      case CR:
+      case FEED:
+        next = pos;
+        do {
+          next += 1;
+          code = codeAt(css, next);
+          if (code == NEWLINE) {
+            offset = next;
+            line += 1;
+          }
+        } while (code == SPACE || code == NEWLINE || code == TAB || code == CR || code == FEED);
+
+        tokens.add(new Object[] { "space", css.substring(pos, next) });
+        pos = next - 1;
+        break;
+
+      case OPEN_SQUARE:
+        tokens.add(new Object[] { "[", "[", line, pos - offset });
+        break;
+
+      case CLOSE_SQUARE:
+        tokens.add(new Object[] { "]", "]", line, pos - offset });
+        break;
+
+      case OPEN_CURLY:
+        tokens.add(new Object[] { "{", "{", line, pos - offset });
+        break;
+
+      case CLOSE_CURLY:
+        tokens.add(new Object[] { "}", "}", line, pos - offset });
+        break;
+
+      case COLON:
+        tokens.add(new Object[] { ":", ":", line, pos - offset });
+        break;
+
+      case SEMICOLON:
+        tokens.add(new Object[] { ";", ";", line, pos - offset });
+        break;
+
+      case OPEN_PARENTHESES: {
+        Object prev = tokens.isEmpty() ? "" : tokens.get(tokens.size() - 1)[1];
+        int n = codeAt(css, pos + 1);
+        if ("url".equals(prev) && n != SINGLE_QUOTE && n != DOUBLE_QUOTE
+            && n != SPACE && n != NEWLINE && n != TAB && n != FEED && n != CR) {
+          next = pos;
+          boolean escaped;
+          do {
+            escaped = false;
+            next = css.indexOf(')', next + 1);
+            if (next == -1) {
+              if (ignore) {
+                next = pos;
+                break;
+              } else {
+                throw new UnclosedException("bracket", line, pos - offset);
+              }
+            }
+            int escapePos = next;
+            while (codeAt(css, escapePos - 1) == BACKSLASH) {
+              escapePos -= 1;
+              escaped = !escaped;
+            }
+          } while (escaped);
+
+          tokens.add(new Object[] { "brackets", css.substring(pos, next + 1), line, pos - offset, line, next - offset });
+          pos = next;
+        } else {
+          next = css.indexOf(')', pos + 1);
+          if (next == -1 || isBadBracket(css, pos, next + 1)) {
+            tokens.add(new Object[] { "(", "(", line, pos - offset });
+          } else {
+            tokens.add(new Object[] { "brackets", css.substring(pos, next + 1), line, pos - offset, line, next - offset });
+            pos = next;
+          }
+        }
+        break;
+      }
+
+      case CLOSE_PARENTHESES:
+        tokens.add(new Object[] { ")", ")", line, pos - offset });
+        break;
+
+      case SINGLE_QUOTE:
+      case DOUBLE_QUOTE: {
+        char quote = (char)code;
+        next = pos;
+        boolean escaped;
+        do {
+          escaped = false;
+          next = css.indexOf(quote, next + 1);
+          if (next == -1) {
+            if (ignore) {
+              next = pos + 1;
+              break;
+            } else {
+              throw new UnclosedException("string", line, pos - offset);
+            }
+          }
+          int escapePos = next;
+          while (codeAt(css, escapePos - 1) == BACKSLASH) {
+            escapePos -= 1;
+            escaped = !escaped;
+          }
+        } while (escaped);
+
+        String content = slice(css, pos, next + 1);
+        int nextLine = line;
+        int nextOffset = offset;
+        int lastNewline = content.lastIndexOf('\n');
+        if (lastNewline != -1) {
+          nextLine = line + count(content, '\n');
+          nextOffset = next - (content.length() - lastNewline - 1);
+        }
+
+        tokens.add(new Object[] { "string", content, line, pos - offset, nextLine, next - nextOffset });
+
+        offset = nextOffset;
+        line = nextLine;
+        pos = next;
+        break;
+      }
+
+      case AT:
+        next = pos + 1;
+        while (next < length && !isEnd(AT_END, css.charAt(next))) {
+          next++;
+        }
+        next = (next < length) ? next - 1 : length - 1;
+        tokens.add(new Object[] { "at-word", css.substring(pos, next + 1), line, pos - offset, line, next - offset });
+        pos = next;
+        break;
+
+      case BACKSLASH: {
+        next = pos;
+        boolean escape = true;
+        while (codeAt(css, next + 1) == BACKSLASH) {
+          next += 1;
+          escape = !escape;
+        }
+        code = codeAt(css, next + 1);
+        if (escape && code != SLASH && code != SPACE && code != NEWLINE && code != TAB && code != CR && code != FEED) {
+          next += 1;
+        }
+        tokens.add(new Object[] { "word", slice(css, pos, next + 1), line, pos - offset, line, next - offset });
+        pos = next;
+        break;
+      }
+
+      default:
+        if (code == SLASH && codeAt(css, pos + 1) == ASTERISK) {
+          next = css.indexOf("*/", pos + 2) + 1;
+          if (next == 0) {
+            if (ignore) {
+              next = length;
+            } else {
+              throw new UnclosedException("comment", line, pos - offset);
+            }
+          }
+
+          String content = slice(css, pos, next + 1);
+          int nextLine = line;
+          int nextOffset = offset;
+          int lastNewline = content.lastIndexOf('\n');
+          if (lastNewline != -1) {
+            nextLine = line + count(content, '\n');
+            nextOffset = next - (content.length() - lastNewline - 1);
+          }
+
+          tokens.add(new Object[] { "comment", content, line, pos - offset, nextLine, next - nextOffset });
+
+          offset = nextOffset;
+          line = nextLine;
+          pos = next;
+        } else {
+          next = pos + 1;
+          while (next < length) {
+            char c = css.charAt(next);
+            if (isEnd(WORD_END, c) || (c == SLASH && codeAt(css, next + 1) == ASTERISK)) {
+              break;
+            }
+            next++;
+          }
+          next = (next < length) ? next - 1 : length - 1;
+          tokens.add(new Object[] { "word", css.substring(pos, next + 1), line, pos - offset, line, next - offset });
+          pos = next;
+        }
+        break;
+      }
+
+      pos++;
+    }
+
+    return tokens;
+  }
+
+  private static int codeAt(String css, int index) {
+    return (index >= 0 && index < css.length()) ? css.charAt(index) : -1;
+  }
+
+  private static boolean isEnd(boolean[] table, char c) {
+    return c < table.length && table[c];
+  }
+
+  private static String slice(String css, int start, int end) {
+    return css.substring(start, Math.min(end, css.length()));
+  }
+
+  private static int count(String s, char c) {
+    int count = 0;
+    for (int i = s.indexOf(c); i != -1; i = s.indexOf(c, i + 1)) {
+      count++;
+    }
+    return count;
+  }
+
+  // /.[\\\/\("'\n]/ where '.' is anything but a line terminator
+  private static boolean isBadBracket(String css, int start, int end) {
+    for (int i = start + 1; i < end; i++) {
+      char c = css.charAt(i);
+      if (c == '\\' || c == '/' || c == '(' || c == '"' || c == '\'' || c == '\n') {
+        char prev = css.charAt(i - 1);
+        if (prev != '\n' && prev != '\r' && prev != '\u2028' && prev != '\u2029') {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  static class UnclosedException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    final String what;
+    final int line;
+    final int column;
+
+    UnclosedException(String what, int line, int column) {
+      super("Unclosed " + what + " at " + line + ":" + column);
+      this.what = what;
+      this.line = line;
+      this.column = column;
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package net.arnx.rhinode.postcss;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class Watcher implements AutoCloseable {
+  private final PostCSS postcss;
+  private final Path root;
+  private final Path exclude;
+  private final PathMatcher matcher;
+  private final long debounce;
+  private final Consumer<BatchResult> listener;
+
+  private final WatchService service;
+  private final Map<WatchKey, Path> keys = new HashMap<>();
+  private final Thread thread;
+  private volatile boolean closed;
+
+  Watcher(PostCSS postcss, Path root, Path exclude, String glob, long debounce, Consumer<BatchResult> listener) throws IOException {
+    this.postcss = postcss;
+    this.root = root;
+    this.exclude = exclude;
+    this.matcher = root.getFileSystem().getPathMatcher("glob:" + glob);
+    this.debounce = debounce;
+    this.listener = listener;
+
+    this.service = root.getFileSystem().newWatchService();
+    register(root, null);
+
+    this.thread = new Thread(this::run, "postcss-watcher");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  public void join() throws InterruptedException {
+    thread.join();
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    service.close();
+  }
+
+  private void run() {
+    while (!closed) {
+      try {
+        Set<String> changed = new TreeSet<>();
+        collect(service.take(), changed);
+
+        WatchKey key;
+        while ((key = service.poll(debounce, TimeUnit.NANOSECONDS)) != null) {
+          collect(key, changed);
+        }
+
+        if (!changed.isEmpty()) {
+          for (BatchResult result : postcss.processAll(changed)) {
+            notify(result);
+          }
+        }
+      } catch (InterruptedException | ClosedWatchServiceException e) {
+        // closed
+        return;
+      } catch (IOException | RuntimeException e) {
+        notify(new BatchResult(root.toString(), root.toString(), null, e, 0));
+      }
+    }
+  }
+
+  private void notify(BatchResult result) {
+    try {
+      listener.accept(result);
+    } catch (RuntimeException e) {
+      // a failing listener must not stop watching
+      Thread thread = Thread.currentThread();
+      thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+  }
+
+  private void collect(WatchKey key, Set<String> changed) throws IOException {
+    try {
+      Path dir = keys.get(key);
+      for (WatchEvent<?> event : key.pollEvents()) {
+        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+          register(root, changed);
+          continue;
+        }
+        if (dir == null) {
+          continue;
+        }
+
+        Path path = dir.resolve((Path)event.context());
+        if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+          try {
+            register(path, changed);
+          } catch (NoSuchFileException e) {
+            // deleted before it was walked
+          }
+        } else if (event.kind() != StandardWatchEventKinds.ENTRY_DELETE) {
+          add(path, changed);
+        }
+      }
+    } finally {
+      if (!key.reset()) {
+        keys.remove(key);
+      }
+    }
+  }
+
+  private void register(Path start, Set<String> changed) throws IOException {
+    try (Stream<Path> stream = Files.walk(start)) {
+      for (Path path : (Iterable<Path>)stream::iterator) {
+        if (PostCSS.isExcluded(path, exclude)) {
+          continue;
+        } else if (Files.isDirectory(path)) {
+          if (!keys.containsValue(path)) {
+            keys.put(path.register(service,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE), path);
+          }
+        } else if (changed != null) {
+          add(path, changed);
+        }
+      }
+    }
+  }
+
+  private void add(Path path, Set<String> changed) {
+    // written by the previous batch
+    if (PostCSS.isExcluded(path, exclude)) {
+      return;
+    }
+    Path relative = root.relativize(path);
+    if (matcher.matches(relative) && Files.isRegularFile(path)) {
+      changed.add(relative.toString().replace('\\', '/'));
+    }
+  }
+}
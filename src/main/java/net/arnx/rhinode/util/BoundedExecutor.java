@@ -0,0 +1,186 @@
+package net.arnx.rhinode.util;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BoundedExecutor implements AutoCloseable {
+  public enum RejectionPolicy {
+    ABORT,
+    CALLER_RUNS
+  }
+
+  private final Executor executor;
+  private final int maxInFlight;
+  private final int queueLimit;
+  private final RejectionPolicy policy;
+
+  private final Deque<Job<?>> queue = new ArrayDeque<>();
+  private int inFlight;
+  private boolean closed;
+
+  private final LongAdder submitCount = new LongAdder();
+  private final LongAdder rejectCount = new LongAdder();
+  private final LongAdder callerRunCount = new LongAdder();
+
+  public BoundedExecutor(Executor executor, int maxInFlight, int queueLimit, RejectionPolicy policy) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
+    if (queueLimit < 0) {
+      throw new IllegalArgumentException("queueLimit must not be negative: " + queueLimit);
+    }
+    this.executor = executor;
+    this.maxInFlight = maxInFlight;
+    this.queueLimit = queueLimit;
+    this.policy = policy;
+  }
+
+  public <V> CompletableFuture<V> submit(Callable<V> task) {
+    Job<V> job = new Job<>(task);
+    submitCount.increment();
+
+    boolean start = false;
+    synchronized (this) {
+      if (closed) {
+        job.future.completeExceptionally(new RejectedExecutionException("executor is closed."));
+        return job.future;
+      }
+
+      if (inFlight < maxInFlight) {
+        inFlight++;
+        start = true;
+      } else if (queue.size() < queueLimit) {
+        queue.addLast(job);
+        return job.future;
+      }
+    }
+
+    if (start) {
+      try {
+        executor.execute(() -> drain(job));
+      } catch (RejectedExecutionException e) {
+        Job<?>[] pending = new Job<?>[0];
+        synchronized (this) {
+          inFlight--;
+          // jobs queued behind this one are left without a drainer
+          if (inFlight == 0) {
+            pending = queue.toArray(new Job<?>[queue.size()]);
+            queue.clear();
+          }
+        }
+        rejectCount.add(1 + pending.length);
+        job.future.completeExceptionally(e);
+        for (Job<?> queued : pending) {
+          queued.future.completeExceptionally(e);
+        }
+      }
+    } else if (policy == RejectionPolicy.CALLER_RUNS) {
+      callerRunCount.increment();
+      job.run();
+    } else {
+      rejectCount.increment();
+      job.future.completeExceptionally(new RejectedExecutionException("too many tasks: inFlight="
+          + maxInFlight + ", queueLimit=" + queueLimit));
+    }
+    return job.future;
+  }
+
+  public synchronized Stats stats() {
+    return new Stats(inFlight, queue.size(), submitCount.sum(), rejectCount.sum(), callerRunCount.sum());
+  }
+
+  @Override
+  public void close() {
+    Job<?>[] pending;
+    synchronized (this) {
+      closed = true;
+      pending = queue.toArray(new Job<?>[queue.size()]);
+      queue.clear();
+    }
+    for (Job<?> job : pending) {
+      job.future.cancel(false);
+    }
+  }
+
+  private void drain(Job<?> first) {
+    Job<?> job = first;
+    while (job != null) {
+      job.run();
+      synchronized (this) {
+        job = queue.pollFirst();
+        if (job == null) {
+          inFlight--;
+        }
+      }
+    }
+  }
+
+  private static class Job<V> {
+    final Callable<V> task;
+    final CompletableFuture<V> future = new CompletableFuture<>();
+
+    Job(Callable<V> task) {
+      this.task = task;
+    }
+
+    void run() {
+      if (future.isDone()) {
+        return;
+      }
+      try {
+        future.complete(task.call());
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+    }
+  }
+
+  public static class Stats {
+    private final int inFlight;
+    private final int queued;
+    private final long submitCount;
+    private final long rejectCount;
+    private final long callerRunCount;
+
+    private Stats(int inFlight, int queued, long submitCount, long rejectCount, long callerRunCount) {
+      this.inFlight = inFlight;
+      this.queued = queued;
+      this.submitCount = submitCount;
+      this.rejectCount = rejectCount;
+      this.callerRunCount = callerRunCount;
+    }
+
+    public int inFlight() {
+      return inFlight;
+    }
+
+    public int queued() {
+      return queued;
+    }
+
+    public long submitCount() {
+      return submitCount;
+    }
+
+    public long rejectCount() {
+      return rejectCount;
+    }
+
+    public long callerRunCount() {
+      return callerRunCount;
+    }
+
+    @Override
+    public String toString() {
+      return "Stats [inFlight=" + inFlight + ", queued=" + queued
+          + ", submitCount=" + submitCount
+          + ", rejectCount=" + rejectCount
+          + ", callerRunCount=" + callerRunCount + "]";
+    }
+  }
+}
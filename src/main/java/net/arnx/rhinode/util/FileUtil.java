@@ -1,13 +1,23 @@
 package net.arnx.rhinode.util;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Locale;
 
 public class FileUtil {
+  static final long MAP_THRESHOLD = 1024 * 1024;
+
   public static String normalize(String path) {
     if (path.contains(".")) {
       StringBuilder sb = new StringBuilder(path.length());
@@ -66,13 +76,73 @@ public class FileUtil {
   }
 
   public static String toString(InputStream in) throws IOException {
-    StringBuilder sb = new StringBuilder(1000);
-    try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+    try (InputStream input = in) {
+      byte[] buf = new byte[Math.max(input.available(), 8192)];
+      int len = 0;
+      while (true) {
+        int n = input.read(buf, len, buf.length - len);
+        if (n == -1) {
+          break;
+        }
+        len += n;
+        if (len == buf.length) {
+          int b = input.read();
+          if (b == -1) {
+            break;
+          }
+          buf = Arrays.copyOf(buf, buf.length * 2);
+          buf[len++] = (byte)b;
+        }
+      }
+      return new String(buf, 0, len, StandardCharsets.UTF_8);
+    }
+  }
+
+  public static String toString(Reader reader) throws IOException {
+    try (Reader input = reader) {
+      StringBuilder sb = new StringBuilder(8192);
+      char[] buf = new char[8192];
       int n;
-      while ((n = reader.read()) != -1) {
-        sb.append((char)n);
+      while ((n = input.read(buf)) != -1) {
+        sb.append(buf, 0, n);
       }
+      return sb.toString();
+    }
+  }
+
+  public static String toString(ByteBuffer buf) {
+    if (buf.hasArray()) {
+      return new String(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining(), StandardCharsets.UTF_8);
+    }
+
+    // decode a mapped buffer in place instead of copying it into a byte[] first
+    CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer out = CharBuffer.allocate((int)(buf.remaining() * (double)decoder.maxCharsPerByte()));
+    decoder.decode(buf.duplicate(), out, true);
+    decoder.flush(out);
+    out.flip();
+    return out.toString();
+  }
+
+  public static String toString(Path path) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("file is too large: " + path);
+      } else if (size >= MAP_THRESHOLD) {
+        return toString(channel.map(MapMode.READ_ONLY, 0, size));
+      }
+
+      ByteBuffer buf = ByteBuffer.allocate((int)size);
+      while (buf.hasRemaining()) {
+        if (channel.read(buf) == -1) {
+          break;
+        }
+      }
+      buf.flip();
+      return toString(buf);
     }
-    return sb.toString();
   }
 }
@@ -0,0 +1,174 @@
+package net.arnx.rhinode.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+public class LruCache<K, V> {
+  private final int maxSize;
+  private final long maxWeight;
+  private final ToLongFunction<V> weigher;
+
+  private final LinkedHashMap<K, Entry<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long weight;
+  private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private final LongAdder evictionCount = new LongAdder();
+
+  public LruCache(int maxSize, long maxWeight, ToLongFunction<V> weigher) {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+    }
+    this.maxSize = maxSize;
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+  }
+
+  public V get(K key, Loader<V> loader) throws IOException {
+    V value = getIfPresent(key);
+    if (value != null) {
+      hitCount.increment();
+      return value;
+    }
+
+    CompletableFuture<V> future = new CompletableFuture<>();
+    CompletableFuture<V> current = loading.putIfAbsent(key, future);
+    if (current != null) {
+      hitCount.increment();
+      return await(current);
+    }
+
+    missCount.increment();
+    try {
+      value = loader.load();
+      put(key, value);
+      future.complete(value);
+      return value;
+    } catch (IOException | RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      loading.remove(key, future);
+    }
+  }
+
+  public synchronized V getIfPresent(K key) {
+    Entry<V> entry = entries.get(key);
+    return (entry != null) ? entry.value : null;
+  }
+
+  public synchronized void put(K key, V value) {
+    // the weight is taken once, since a value may weigh differently later on
+    Entry<V> entry = new Entry<>(value, weigher.applyAsLong(value));
+    // a value heavier than the whole cache is handed out without being kept
+    Entry<V> old = (entry.weight > maxWeight) ? entries.remove(key) : entries.put(key, entry);
+    if (old != null) {
+      weight -= old.weight;
+    }
+    if (entry.weight > maxWeight) {
+      return;
+    }
+    weight += entry.weight;
+
+    Iterator<Entry<V>> i = entries.values().iterator();
+    while ((entries.size() > maxSize || weight > maxWeight) && i.hasNext()) {
+      Entry<V> eldest = i.next();
+      i.remove();
+      weight -= eldest.weight;
+      evictionCount.increment();
+    }
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+    weight = 0;
+  }
+
+  public synchronized Stats stats() {
+    return new Stats(entries.size(), weight, hitCount.sum(), missCount.sum(), evictionCount.sum());
+  }
+
+  private static <V> V await(CompletableFuture<V> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("cancel for loading cache entry", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException)cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException)cause;
+      } else if (cause instanceof Error) {
+        throw (Error)cause;
+      }
+      throw new UncheckedIOException(new IOException(cause));
+    }
+  }
+
+  private static class Entry<V> {
+    final V value;
+    final long weight;
+
+    Entry(V value, long weight) {
+      this.value = value;
+      this.weight = weight;
+    }
+  }
+
+  public interface Loader<V> {
+    V load() throws IOException;
+  }
+
+  public static class Stats {
+    private final int size;
+    private final long weight;
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+
+    private Stats(int size, long weight, long hitCount, long missCount, long evictionCount) {
+      this.size = size;
+      this.weight = weight;
+      this.hitCount = hitCount;
+      this.missCount = missCount;
+      this.evictionCount = evictionCount;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public long weight() {
+      return weight;
+    }
+
+    public long hitCount() {
+      return hitCount;
+    }
+
+    public long missCount() {
+      return missCount;
+    }
+
+    public long evictionCount() {
+      return evictionCount;
+    }
+
+    @Override
+    public String toString() {
+      return "Stats [size=" + size + ", weight=" + weight
+          + ", hitCount=" + hitCount + ", missCount=" + missCount
+          + ", evictionCount=" + evictionCount + "]";
+    }
+  }
+}
@@ -0,0 +1,79 @@
+var count = function(root) {
+    var nodes = 0;
+    root.walk(function() {
+        nodes++;
+    });
+    return nodes;
+};
+
+var wrap = function(processor, name, plugin) {
+    var wrapped = function(root, result) {
+        var recorder = processor.recorder;
+        if (!recorder) {
+            return plugin(root, result);
+        }
+
+        var started = recorder('start', name);
+        var ret;
+        try {
+            ret = plugin(root, result);
+        } catch (e) {
+            recorder('end', name, started);
+            throw e;
+        }
+        if (ret && typeof ret.then === 'function') {
+            return ret.then(function(value) {
+                recorder('end', name, started);
+                return value;
+            }, function(reason) {
+                recorder('end', name, started);
+                throw reason;
+            });
+        }
+        recorder('end', name, started);
+        return ret;
+    };
+    wrapped.postcssPlugin = plugin.postcssPlugin;
+    wrapped.postcssVersion = plugin.postcssVersion;
+    return wrapped;
+};
+
+exports.processor = function(postcss, entries) {
+    var processor = postcss();
+    entries.forEach(function(entry) {
+        postcss([entry.plugin]).plugins.forEach(function(plugin) {
+            processor.plugins.push(wrap(processor, entry.name, plugin));
+        });
+    });
+    return processor;
+};
+
+exports.options = function(postcss, processor, opts, recorder) {
+    processor.recorder = recorder;
+    opts.parser = function(css, o) {
+        var started = recorder('start', 'parse');
+        var root = postcss.parse(css, o);
+        recorder('end', 'parse', started);
+        // counted after the timer has stopped
+        recorder('nodes', 'parse', count(root));
+        return root;
+    };
+
+    var timed = function(node, fn) {
+        var started = recorder('start', 'stringify');
+        var ret = fn();
+        recorder('end', 'stringify', started);
+        recorder('nodes', 'stringify', count(node));
+        return ret;
+    };
+    var stringifier = function(node, builder) {
+        timed(node, function() {
+            postcss.stringify(node, builder);
+        });
+    };
+    // lets map-generator keep the native stringifier and time that instead
+    stringifier.original = postcss.stringify;
+    stringifier.timed = timed;
+    opts.stringifier = stringifier;
+    return opts;
+};
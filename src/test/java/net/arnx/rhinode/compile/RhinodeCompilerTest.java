@@ -0,0 +1,82 @@
+package net.arnx.rhinode.compile;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.arnx.rhinode.core.ModuleResolver;
+
+public class RhinodeCompilerTest {
+  private Path src;
+  private Path dest;
+
+  @Before
+  public void setUp() throws Exception {
+    src = Files.createTempDirectory("rhinode-src");
+    dest = Files.createTempDirectory("rhinode-dest");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    for (Path dir : new Path[] { src, dest }) {
+      try (Stream<Path> stream = Files.walk(dir)) {
+        stream.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+      }
+    }
+  }
+
+  private void write(String path, String content) throws Exception {
+    Path file = src.resolve(path);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private FileTime backdate(String path) throws Exception {
+    FileTime old = FileTime.fromMillis(0);
+    Files.setLastModifiedTime(dest.resolve(path), old);
+    return old;
+  }
+
+  @Test
+  public void testIncremental() throws Exception {
+    write("a/index.js", "module.exports = require('./b') + 1;");
+    write("a/b.js", "module.exports = function() { return 1; };");
+    write("a/c.json", "{\"c\":true}");
+    write("a/d.json", "{broken");
+
+    RhinodeCompiler compiler = new RhinodeCompiler().parallelism(2);
+    compiler.compile(src, dest);
+    assertTrue(Files.exists(dest.resolve("a/index_js.class")));
+    assertTrue(Files.exists(dest.resolve("a/b_js.class")));
+    assertTrue(Files.exists(dest.resolve("a/c_json.jsonb")));
+    assertFalse(Files.exists(dest.resolve("a/d_json.jsonb")));
+    assertTrue(new String(Files.readAllBytes(dest.resolve(ModuleResolver.MANIFEST)), StandardCharsets.UTF_8)
+        .contains("a\t./b\ta/b.js"));
+
+    FileTime index = backdate("a/index_js.class");
+    FileTime b = backdate("a/b_js.class");
+    FileTime c = backdate("a/c_json.jsonb");
+    write("a/b.js", "module.exports = function() { return 2; };");
+    compiler.compile(src, dest);
+    assertEquals(index, Files.getLastModifiedTime(dest.resolve("a/index_js.class")));
+    assertNotEquals(b, Files.getLastModifiedTime(dest.resolve("a/b_js.class")));
+    assertEquals(c, Files.getLastModifiedTime(dest.resolve("a/c_json.jsonb")));
+
+    Files.delete(dest.resolve("a/c_json.jsonb"));
+    Files.delete(src.resolve("a/b.js"));
+    compiler.compile(src, dest);
+    assertTrue(Files.exists(dest.resolve("a/c_json.jsonb")));
+    assertFalse(Files.exists(dest.resolve("a/b_js.class")));
+    assertFalse(new String(Files.readAllBytes(dest.resolve(ModuleResolver.MANIFEST)), StandardCharsets.UTF_8)
+        .contains("a/b.js"));
+  }
+}
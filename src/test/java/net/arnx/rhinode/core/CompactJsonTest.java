@@ -0,0 +1,67 @@
+package net.arnx.rhinode.core;
+
+import static org.junit.Assert.*;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NativeJSON;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.json.JsonParser;
+
+public class CompactJsonTest {
+  private static final String JSON = "{\"agents\":{\"ie\":{\"usage\":1.5,\"versions\":[\"9\",\"10\",null]}},"
+      + "\"10\":true,\"name\":\"caniuse\",\"count\":-3,\"empty\":{},\"nested\":[[1,2],{\"a\":false}]}";
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    Context cx = Context.enter();
+    try {
+      Scriptable scope = cx.initStandardObjects();
+      Object root = load(cx, scope, JSON).root(scope, false);
+
+      assertEquals(stringify(cx, scope, new JsonParser(cx, scope).parseValue(JSON)), stringify(cx, scope, root));
+      assertEquals("agents,10,name,count,empty,nested", cx.evaluateString(scope, "Object.keys(root).join()", "<test>", 0, null));
+    } finally {
+      Context.exit();
+    }
+  }
+
+  @Test
+  public void testLazy() throws Exception {
+    Context cx = Context.enter();
+    try {
+      Scriptable scope = cx.initStandardObjects();
+      CompactJson data = load(cx, scope, JSON);
+      ScriptableObject.putProperty(scope, "a", data.root(scope, false));
+      ScriptableObject.putProperty(scope, "b", data.root(scope, false));
+
+      assertEquals(1.5, cx.evaluateString(scope, "a.agents.ie.usage", "<test>", 0, null));
+      assertEquals(true, cx.evaluateString(scope, "'ie' in a.agents && a.hasOwnProperty('name')", "<test>", 0, null));
+      assertEquals("changed", cx.evaluateString(scope, "a.agents.ie.usage = 'changed'; a.agents.ie.usage", "<test>", 0, null));
+      assertEquals(1.5, cx.evaluateString(scope, "b.agents.ie.usage", "<test>", 0, null));
+      assertEquals(true, cx.evaluateString(scope, "delete b.name; !('name' in b)", "<test>", 0, null));
+    } finally {
+      Context.exit();
+    }
+  }
+
+  private CompactJson load(Context cx, Scriptable scope, String json) throws Exception {
+    Path file = Files.createTempFile("compact", ".jsonb");
+    file.toFile().deleteOnExit();
+    try (OutputStream out = Files.newOutputStream(file)) {
+      CompactJson.write(new JsonParser(cx, scope).parseValue(json), out);
+    }
+    CompactJson data = CompactJson.load(file.toUri().toURL());
+    ScriptableObject.putProperty(scope, "root", data.root(scope, false));
+    return data;
+  }
+
+  private static Object stringify(Context cx, Scriptable scope, Object value) {
+    return NativeJSON.stringify(cx, scope, value, null, null);
+  }
+}
@@ -0,0 +1,151 @@
+package net.arnx.rhinode.core;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class EnginePoolTest {
+  private AtomicInteger created = new AtomicInteger();
+  private AtomicInteger closed = new AtomicInteger();
+
+  @Test
+  public void testBorrowAndRelease() throws Exception {
+    try (EnginePool<Engine> pool = new EnginePool<>(Engine::new, 2, 100, TimeUnit.MILLISECONDS)) {
+      Engine a = pool.borrow();
+      Engine b = pool.borrow();
+      assertNotSame(a, b);
+      assertEquals(2, pool.stats().busy());
+      assertEquals(0, pool.stats().idle());
+
+      pool.release(a);
+      assertSame(a, pool.borrow());
+      pool.release(a);
+      pool.release(b);
+
+      assertEquals(2, created.get());
+      assertEquals(2, pool.stats().size());
+      assertEquals(2, pool.stats().idle());
+      assertEquals(0, pool.stats().busy());
+      assertEquals(3, pool.stats().borrowCount());
+    }
+    assertEquals(2, closed.get());
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    try (EnginePool<Engine> pool = new EnginePool<>(Engine::new, 1, 10, TimeUnit.MILLISECONDS)) {
+      Engine a = pool.borrow();
+      try {
+        pool.borrow();
+        fail();
+      } catch (IllegalStateException e) {
+        assertEquals("timeout for borrowing engine", e.getMessage());
+      }
+      pool.release(a);
+    }
+  }
+
+  @Test
+  public void testWaitForRelease() throws Exception {
+    try (EnginePool<Engine> pool = new EnginePool<>(Engine::new, 1, 10, TimeUnit.SECONDS)) {
+      Engine a = pool.borrow();
+      Thread thread = new Thread(() -> {
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          // ignore
+        }
+        pool.release(a);
+      });
+      thread.start();
+      assertSame(a, pool.borrow());
+      assertTrue(pool.stats().maxWaitTime(TimeUnit.MILLISECONDS) > 0);
+      thread.join();
+    }
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    try (EnginePool<Engine> pool = new EnginePool<>(Engine::new, 1, 10, TimeUnit.MILLISECONDS)) {
+      Engine a = pool.borrow();
+      pool.invalidate(a);
+      assertEquals(1, closed.get());
+      assertEquals(0, pool.stats().size());
+
+      Engine b = pool.borrow();
+      assertNotSame(a, b);
+      pool.release(b);
+    }
+  }
+
+  @Test
+  public void testWaitForInvalidate() throws Exception {
+    try (EnginePool<Engine> pool = new EnginePool<>(Engine::new, 1, 10, TimeUnit.SECONDS)) {
+      Engine a = pool.borrow();
+      Thread thread = new Thread(() -> {
+        try {
+          Thread.sleep(50);
+        } catch (InterruptedException e) {
+          // ignore
+        }
+        pool.invalidate(a);
+      });
+      thread.start();
+      long start = System.nanoTime();
+      Engine b = pool.borrow();
+      assertNotSame(a, b);
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+      thread.join();
+      pool.release(b);
+    }
+  }
+
+  @Test
+  public void testWaitForClose() throws Exception {
+    EnginePool<Engine> pool = new EnginePool<>(Engine::new, 1, 10, TimeUnit.SECONDS);
+    Engine a = pool.borrow();
+    Thread thread = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        // ignore
+      }
+      pool.close();
+    });
+    thread.start();
+    long start = System.nanoTime();
+    try {
+      pool.borrow();
+      fail();
+    } catch (IllegalStateException e) {
+      assertEquals("pool is closed.", e.getMessage());
+    }
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    thread.join();
+    pool.release(a);
+    assertEquals(1, closed.get());
+  }
+
+  @Test
+  public void testPrestart() throws Exception {
+    try (EnginePool<Engine> pool = new EnginePool<>(Engine::new, 3, 10, TimeUnit.MILLISECONDS)) {
+      pool.prestart();
+      assertEquals(3, created.get());
+      assertEquals(3, pool.stats().idle());
+    }
+  }
+
+  private class Engine implements AutoCloseable {
+    public Engine() {
+      created.incrementAndGet();
+    }
+
+    @Override
+    public void close() {
+      closed.incrementAndGet();
+    }
+  }
+}
@@ -2,6 +2,11 @@ package net.arnx.rhinode.core;
 
 import static org.junit.Assert.*;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
 import org.junit.Test;
 
 import net.arnx.rhinode.core.RhinodeEngine;
@@ -41,4 +46,42 @@ public class FileSystemTest {
     assertEquals("テスト", engine.eval("require('fs').readFileSync('" + cdir + "/test.txt').toString()"));
     assertEquals("テスト", engine.eval("require('fs').readFileSync('" + cdir + "/test.txt').toString('UTF-8')"));
   }
+
+  @Test
+  public void testCache() throws Exception {
+    Path dir = Files.createTempDirectory("fs");
+    dir.toFile().deleteOnExit();
+    Path file = dir.resolve("a.txt");
+    file.toFile().deleteOnExit();
+    String path = file.toString().replace('\\', '/');
+
+    engine.init("var fs = require('fs');");
+    Files.write(file, "first".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(1000000000000L));
+    assertEquals("first", engine.eval("fs.readFileSync('" + path + "', 'utf8')"));
+
+    // stats are cached for the current run only
+    assertEquals(Boolean.TRUE, engine.eval("var exists = fs.existsSync('" + path + "');"
+        + "java.nio.file.Files.delete(java.nio.file.Paths.get('" + path + "'));"
+        + "exists && fs.existsSync('" + path + "') && fs.statSync('" + path + "').isFile()"));
+    assertEquals(Boolean.FALSE, engine.eval("fs.existsSync('" + path + "')"));
+
+    // contents are cached by path and mtime
+    Files.write(file, "other".getBytes(StandardCharsets.UTF_8));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(1000000000000L));
+    assertEquals("first", engine.eval("fs.readFileSync('" + path + "').toString()"));
+    Files.setLastModifiedTime(file, FileTime.fromMillis(1000000001000L));
+    assertEquals("other", engine.eval("fs.readFileSync('" + path + "').toString()"));
+  }
+
+  @Test
+  public void testError() throws Exception {
+    Path dir = Files.createTempDirectory("fs");
+    dir.toFile().deleteOnExit();
+    String path = dir.resolve("missing.txt").toString().replace('\\', '/');
+
+    assertEquals("ENOENT", engine.eval("var code; try { require('fs').statSync('" + path + "'); } catch (e) { code = e.code; } code"));
+    assertEquals("EISDIR", engine.eval("var code; try { require('fs').readFileSync('" + dir.toString().replace('\\', '/') + "'); } catch (e) { code = e.code; } code"));
+    assertEquals("TypeError", engine.eval("var name; try { require('fs').readFileSync(1); } catch (e) { name = e.name; } name"));
+  }
 }
@@ -0,0 +1,56 @@
+package net.arnx.rhinode.core;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+
+public class ModuleResolverTest {
+  private static final String MODULES = "net/arnx/rhinode/modules/node_modules";
+
+  @Test
+  public void testResolve() throws Exception {
+    ModuleResolver resolver = new ModuleResolver(getClass().getClassLoader());
+    Context cx = Context.enter();
+    try {
+      assertEquals(MODULES + "/postcss/lib/postcss.js",
+          resolver.resolve(cx, "net/arnx/rhinode/modules", "postcss"));
+      assertEquals(MODULES + "/postcss/lib/postcss.js",
+          resolver.resolve(cx, MODULES + "/postcss/lib/deep/dir", "postcss"));
+      assertEquals(MODULES + "/postcss/lib/parse.js",
+          resolver.resolve(cx, MODULES + "/postcss/lib", "./parse"));
+      assertEquals(MODULES + "/postcss/lib/parse.js",
+          resolver.resolve(cx, MODULES + "/postcss/lib", "./parse.js"));
+      assertEquals("net/arnx/rhinode/core/console.js",
+          resolver.resolve(cx, "", "classpath:net/arnx/rhinode/core/console.js"));
+      assertEquals("path",
+          resolver.resolve(cx, MODULES, "path"));
+
+      assertNull(resolver.resolve(cx, MODULES + "/postcss/lib", "./unknown"));
+      assertNull(resolver.resolve(cx, MODULES + "/postcss/lib", "unknown"));
+      assertNull(resolver.resolve(cx, "", "../outside"));
+    } finally {
+      Context.exit();
+    }
+  }
+
+  @Test
+  public void testManifest() throws Exception {
+    ModuleResolver resolver = new ModuleResolver(getClass().getClassLoader());
+    Context cx = Context.enter();
+    try {
+      resolver.resolve(cx, MODULES + "/postcss/lib", "./unknown");
+      resolver.resolve(cx, MODULES + "/postcss/lib", "./parse");
+      resolver.resolve(cx, "net/arnx/rhinode/modules", "postcss");
+    } finally {
+      Context.exit();
+    }
+
+    StringWriter out = new StringWriter();
+    resolver.write(out);
+    assertEquals("net/arnx/rhinode/modules\tpostcss\t" + MODULES + "/postcss/lib/postcss.js\n"
+        + MODULES + "/postcss/lib\t./parse\t" + MODULES + "/postcss/lib/parse.js\n", out.toString());
+  }
+}
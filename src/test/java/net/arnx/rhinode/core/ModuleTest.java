@@ -0,0 +1,64 @@
+package net.arnx.rhinode.core;
+
+import static org.junit.Assert.*;
+
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class ModuleTest {
+  @Test
+  public void testCircular() throws Exception {
+    Path dir = Files.createTempDirectory("module");
+    dir.toFile().deleteOnExit();
+    write(dir.resolve("a.js"), "exports.name = 'a'; var b = require('./b'); exports.b = b.name; exports.seen = b.seen;");
+    write(dir.resolve("b.js"), "exports.name = 'b'; exports.seen = require('./a').name;");
+
+    try (URLClassLoader cl = new URLClassLoader(new URL[] { dir.toUri().toURL() }, getClass().getClassLoader())) {
+      RhinodeEngine engine = new RhinodeEngine(cl, "");
+      assertEquals("b,a", engine.eval("var a = require('./a'); a.b + ',' + a.seen"));
+      assertEquals(true, engine.eval("require('./b') === require('./b')"));
+    }
+  }
+
+  @Test
+  public void testChildren() throws Exception {
+    Path dir = Files.createTempDirectory("module");
+    dir.toFile().deleteOnExit();
+    write(dir.resolve("a.js"), "for (var i = 0; i < 3; i++) { require('./b'); } exports.children = module.children.size();");
+    write(dir.resolve("b.js"), "exports.name = 'b';");
+
+    try (URLClassLoader cl = new URLClassLoader(new URL[] { dir.toUri().toURL() }, getClass().getClassLoader())) {
+      RhinodeEngine engine = new RhinodeEngine(cl, "");
+      assertEquals(1, ((Number)engine.eval("require('./a').children")).intValue());
+    }
+  }
+
+  @Test
+  public void testFailed() throws Exception {
+    Path dir = Files.createTempDirectory("module");
+    dir.toFile().deleteOnExit();
+    write(dir.resolve("broken.js"), "if (!global.retry) { throw new Error('broken'); } exports.ok = true;");
+
+    try (URLClassLoader cl = new URLClassLoader(new URL[] { dir.toUri().toURL() }, getClass().getClassLoader())) {
+      RhinodeEngine engine = new RhinodeEngine(cl, "");
+      engine.init("var global = this");
+      try {
+        engine.eval("require('./broken')");
+        fail();
+      } catch (Exception e) {
+      }
+      engine.init("global.retry = true");
+      assertEquals(true, engine.eval("require('./broken').ok"));
+    }
+  }
+
+  private static void write(Path file, String content) throws Exception {
+    file.toFile().deleteOnExit();
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+}
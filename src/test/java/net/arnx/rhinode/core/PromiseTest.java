@@ -0,0 +1,94 @@
+package net.arnx.rhinode.core;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mozilla.javascript.RhinoException;
+
+public class PromiseTest {
+  private RhinodeEngine engine = new RhinodeEngine(getClass().getClassLoader(), "META-INF/nodejs");
+
+  @Test
+  public void testOrder() throws Exception {
+    assertEquals("sync,executor,after,then1,then2,nested", run(
+        "var log = ['sync'];"
+        + "new Promise(function(resolve) { log.push('executor'); resolve(1); })"
+        + ".then(function(v) { log.push('then1'); return Promise.resolve(v + 1); })"
+        + ".then(function(v) { log.push('then2'); return new Promise(function(resolve) { resolve(v); }); })"
+        + ".then(function(v) { if (v === 2) log.push('nested'); });"
+        + "log.push('after');"
+        + "result = log;"));
+  }
+
+  @Test
+  public void testAllAndRace() throws Exception {
+    assertEquals("1,2,3", run(
+        "Promise.all([1, Promise.resolve(2), new Promise(function(r) { r(3); })])"
+        + ".then(function(values) { result = values; });"));
+    assertEquals("", run(
+        "Promise.all([]).then(function(values) { result = values; });"));
+    assertEquals("first", run(
+        "Promise.race([Promise.resolve('first'), Promise.resolve('second')])"
+        + ".then(function(value) { result = value; });"));
+  }
+
+  @Test
+  public void testReject() throws Exception {
+    assertEquals("boom", run(
+        "Promise.reject(new Error('boom')).then(function() { result = 'fulfilled'; })"
+        + ".catch(function(e) { result = e.message; });"));
+    assertEquals("thrown", run(
+        "new Promise(function() { throw 'thrown'; }).catch(function(e) { result = e; });"));
+    assertEquals("TypeError", run(
+        "Promise.resolve().then(function() { return null.x; }).catch(function(e) { result = e.name; });"));
+    assertEquals("recovered", run(
+        "Promise.all([Promise.resolve(1), Promise.reject('no')])"
+        + ".then(null, function(e) { return 'recovered'; }).then(function(v) { result = v; });"));
+  }
+
+  @Test
+  public void testThenable() throws Exception {
+    assertEquals("42", run(
+        "Promise.resolve({ then: function(resolve) { resolve(42); } }).then(function(v) { result = v; });"));
+    assertEquals("true", run(
+        "var p = Promise.resolve(1); result = (Promise.resolve(p) === p) && (p instanceof Promise);"));
+  }
+
+  @Test
+  public void testReceiver() throws Exception {
+    assertEquals("true,true", run(
+        "var f = function() { return this; }; var log = [];"
+        + "new Promise(function(resolve) { log.push(this === f.call(undefined)); resolve(); })"
+        + ".then(function() { log.push(this === f.call(undefined)); result = log; });"));
+  }
+
+  @Test
+  public void testError() throws Exception {
+    Map<String, Class<?>> resultTypes = new HashMap<>();
+    resultTypes.put("error", Throwable.class);
+
+    Map<String, Object> result = engine.run(RhinodeEngine.compile(
+        "Promise.reject(new TypeError('bad')).catch(function(e) { error = e; });", "<test>"),
+        Collections.emptyMap(), resultTypes);
+    Throwable error = (Throwable)result.get("error");
+    assertTrue(error instanceof RhinoException);
+    assertTrue(error.getMessage(), error.getMessage().contains("TypeError: bad"));
+
+    result = engine.run(RhinodeEngine.compile(
+        "Promise.resolve().then(function() { new java.net.URL('unknown'); }).catch(function(e) { error = e; });", "<test>"),
+        Collections.emptyMap(), resultTypes);
+    error = (Throwable)result.get("error");
+    assertTrue(error instanceof RhinoException);
+    assertTrue(error.getMessage(), error.getMessage().contains("MalformedURLException"));
+  }
+
+  private String run(String script) {
+    Map<String, Class<?>> resultTypes = Collections.singletonMap("result", String.class);
+    Map<String, Object> result = engine.run(RhinodeEngine.compile(script, "<test>"), Collections.emptyMap(), resultTypes);
+    return (String)result.get("result");
+  }
+}
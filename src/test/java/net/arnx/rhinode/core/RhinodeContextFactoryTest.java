@@ -0,0 +1,68 @@
+package net.arnx.rhinode.core;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RhinodeContextFactoryTest {
+  private RhinodeEngine engine = new RhinodeEngine(getClass().getClassLoader(), "META-INF/nodejs");
+
+  @Test
+  public void testInstructionLimit() throws Exception {
+    engine.instructionLimit(1000000);
+    try {
+      engine.eval("var i = 0; while (true) { i++; }");
+      fail();
+    } catch (ScriptLimitException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("instruction limit exceeded"));
+    }
+    assertEquals("ok", engine.eval("'ok'"));
+  }
+
+  @Test
+  public void testTimeout() throws Exception {
+    engine.timeout(100, TimeUnit.MILLISECONDS);
+    long start = System.nanoTime();
+    try {
+      engine.eval("try { while (true) {} } catch (e) {} 'caught'");
+      fail();
+    } catch (ScriptLimitException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("timeout for execution"));
+    }
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+  }
+
+  @Test
+  public void testJavaCall() throws Exception {
+    engine.timeout(100, TimeUnit.MILLISECONDS);
+    long start = System.nanoTime();
+    try {
+      engine.eval("try { java.lang.Thread.sleep(10000); } catch (e) {} 'caught'");
+      fail();
+    } catch (ScriptLimitException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("timeout for execution"));
+    }
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+    assertFalse(Thread.currentThread().isInterrupted());
+    assertEquals("ok", engine.eval("'ok'"));
+  }
+
+  @Test
+  public void testPromise() throws Exception {
+    engine.timeout(100, TimeUnit.MILLISECONDS);
+    try {
+      engine.eval("Promise.resolve().then(function() { for (;;) {} }).catch(function() {})");
+      fail();
+    } catch (ScriptLimitException e) {
+      assertTrue(e.getMessage(), e.getMessage().startsWith("timeout for execution"));
+    }
+    assertEquals("done", engine.eval("var r; Promise.resolve('done').then(function(v) { r = v; }); 'done'"));
+  }
+
+  @Test
+  public void testUnlimited() throws Exception {
+    assertEquals(1000000.0, engine.eval("var i = 0; while (i < 1000000) { i++; } i"));
+  }
+}
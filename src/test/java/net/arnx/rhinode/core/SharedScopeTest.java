@@ -0,0 +1,60 @@
+package net.arnx.rhinode.core;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class SharedScopeTest {
+  private static final String MODULES = "net/arnx/rhinode/modules";
+
+  private SharedScope shared = new SharedScope(getClass().getClassLoader(), MODULES + "/node_modules/caniuse-db/");
+
+  @Test
+  public void testShared() throws Exception {
+    RhinodeEngine engine1 = new RhinodeEngine(shared, "META-INF/nodejs");
+    RhinodeEngine engine2 = new RhinodeEngine(shared, "META-INF/nodejs");
+
+    assertEquals("function", engine1.eval("typeof console.log"));
+    assertEquals("string", engine2.eval("typeof process.platform"));
+    assertSame(engine1.eval("console"), engine2.eval("console"));
+    assertEquals("object", engine1.eval("typeof Promise.prototype"));
+  }
+
+  @Test
+  public void testIsolated() throws Exception {
+    RhinodeEngine engine1 = new RhinodeEngine(shared, "META-INF/nodejs");
+    RhinodeEngine engine2 = new RhinodeEngine(shared, "META-INF/nodejs");
+
+    engine1.init("var console = 'engine1'");
+    assertEquals("engine1", engine1.eval("console"));
+    assertEquals("object", engine2.eval("typeof console"));
+  }
+
+  @Test
+  public void testSealed() throws Exception {
+    RhinodeEngine engine = new RhinodeEngine(shared, "META-INF/nodejs");
+    try {
+      engine.eval("console.log = null");
+      fail();
+    } catch (Exception e) {
+    }
+    assertEquals("function", engine.eval("typeof console.log"));
+  }
+
+  @Test
+  public void testImmutableModule() throws Exception {
+    RhinodeEngine engine1 = new RhinodeEngine(shared, MODULES);
+    RhinodeEngine engine2 = new RhinodeEngine(shared, MODULES);
+
+    assertSame(engine1.eval("require('caniuse-db/data.json')"), engine2.eval("require('caniuse-db/data.json')"));
+    try {
+      engine1.eval("require('caniuse-db/data.json').agents.ie.browser = null");
+      fail();
+    } catch (Exception e) {
+    }
+    assertEquals("IE", engine2.eval("require('caniuse-db/data.json').agents.ie.browser"));
+
+    assertNotSame(engine1.eval("require('postcss/package.json')"), engine2.eval("require('postcss/package.json')"));
+    assertEquals("changed", engine1.eval("var pkg = require('postcss/package.json'); pkg.name = 'changed'; pkg.name"));
+  }
+}
@@ -0,0 +1,94 @@
+package net.arnx.rhinode.core;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+
+import org.junit.Test;
+
+public class SnapshotTest {
+  private ClassLoader cl = getClass().getClassLoader();
+
+  @Test
+  public void testRestore() throws Exception {
+    assumeNotNull(cl.getResource("net/arnx/rhinode/core/console_js.class"));
+
+    RhinodeEngine engine = new RhinodeEngine(cl, "META-INF/nodejs");
+    engine.init("var answer = { value: 42 }");
+
+    RhinodeEngine restored = Snapshot.read(cl, "META-INF/nodejs", new ByteArrayInputStream(snapshot(engine))).restore();
+    assertEquals(42, ((Number)restored.eval("answer.value")).intValue());
+    assertEquals("function", restored.eval("typeof console.log"));
+    assertEquals("function", restored.eval("typeof require('classpath:net/arnx/rhinode/core/console.js').log"));
+    assertEquals("function", restored.eval("typeof require('path').join"));
+    assertEquals(true, restored.eval("answer instanceof Object"));
+  }
+
+  @Test
+  public void testCompactJson() throws Exception {
+    String root = "net/arnx/rhinode/modules";
+    assumeNotNull(cl.getResource(root + "/node_modules/caniuse_db/region_usage_json/AN_json.jsonb"));
+
+    RhinodeEngine lazy = new RhinodeEngine(cl, root);
+    lazy.init("var an = require('caniuse-db/region-usage-json/AN.json')");
+    RhinodeEngine materialized = new RhinodeEngine(cl, root);
+    materialized.init("var an = require('caniuse-db/region-usage-json/AN.json'); an.name");
+
+    // an untouched json module is written as a reference to its compact form
+    byte[] data = snapshot(lazy);
+    assertTrue(data.length < snapshot(materialized).length);
+
+    RhinodeEngine restored = Snapshot.read(cl, root, new ByteArrayInputStream(data)).restore();
+    assertEquals("Netherlands Antilles", restored.eval("an.name"));
+    assertEquals(0.080201, restored.eval("an.data.chrome['11']"));
+    assertEquals(true, restored.eval("an instanceof Object"));
+  }
+
+  @Test
+  public void testStale() throws Exception {
+    byte[] data = snapshot(new RhinodeEngine(cl, "META-INF/nodejs"));
+
+    try {
+      Snapshot.read(cl, "META-INF/other", new ByteArrayInputStream(data));
+      fail();
+    } catch (IOException e) {
+      assertEquals("stale snapshot: root is changed.", e.getMessage());
+    }
+
+    ClassLoader changed = new ClassLoader(cl) {
+      @Override
+      public URL getResource(String name) {
+        if (name.equals("net/arnx/rhinode/core/console.js")) {
+          return super.getResource("net/arnx/rhinode/core/process.js");
+        }
+        return super.getResource(name);
+      }
+    };
+    try {
+      Snapshot.read(changed, "META-INF/nodejs", new ByteArrayInputStream(data));
+      fail();
+    } catch (IOException e) {
+      assertEquals("stale snapshot: net/arnx/rhinode/core/console.js is changed.", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testUnknown() throws Exception {
+    try {
+      Snapshot.read(cl, "META-INF/nodejs", new ByteArrayInputStream(new byte[] { 0, 3, 'a', 'b', 'c', 0, 0, 0, 1 }));
+      fail();
+    } catch (IOException e) {
+      assertEquals("unknown snapshot format.", e.getMessage());
+    }
+  }
+
+  private static byte[] snapshot(RhinodeEngine engine) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    Snapshot.write(engine, out);
+    return out.toByteArray();
+  }
+}
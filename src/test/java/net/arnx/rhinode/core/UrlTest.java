@@ -72,4 +72,20 @@ public class UrlTest {
         + "  pathname: '/p/a/t/h',\n"
         + "  path: '/p/a/t/h?query=string' })"));
   }
+
+  @Test
+  public void testResolve() {
+    assertEquals("/one/two/four",
+        (String)engine.eval("require('url').resolve('/one/two/three', 'four')"));
+    assertEquals("http://example.com/one",
+        (String)engine.eval("require('url').resolve('http://example.com/', '/one')"));
+    assertEquals("http://example.com/two",
+        (String)engine.eval("require('url').resolve('http://example.com/one', '/two')"));
+    assertEquals("http://example.com/b",
+        (String)engine.eval("require('url').resolve('http://example.com', 'a/../b')"));
+    assertEquals("http://a/g",
+        (String)engine.eval("require('url').resolve('http://a/b/c/d;p?q', '../../g')"));
+    assertEquals("http://a/b/c/d;p?y",
+        (String)engine.eval("require('url').resolve('http://a/b/c/d;p?q', '?y')"));
+  }
 }
@@ -0,0 +1,33 @@
+package net.arnx.rhinode.postcss;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class MetricsRecorderTest {
+  @Test
+  public void testNested() throws Exception {
+    MetricsRecorder recorder = new MetricsRecorder(Arrays.asList("outer", "inner"));
+    Object outer = call(recorder, "start", "outer");
+    Thread.sleep(50);
+    Object inner = call(recorder, "start", "inner");
+    call(recorder, "end", "inner", inner);
+    Thread.sleep(50);
+    call(recorder, "end", "outer", outer);
+    call(recorder, "nodes", "parse", 4);
+
+    Metrics metrics = recorder.toMetrics();
+    assertTrue(metrics.plugins().get("outer").time(TimeUnit.MILLISECONDS) >= 100);
+    assertTrue(metrics.plugins().get("inner").time(TimeUnit.MILLISECONDS) < 50);
+    assertEquals(1, metrics.plugins().get("outer").invocations());
+    assertEquals(4, metrics.inputNodes());
+    assertEquals(0, metrics.parse().invocations());
+  }
+
+  private static Object call(MetricsRecorder recorder, Object... args) {
+    return recorder.call(null, null, null, args);
+  }
+}
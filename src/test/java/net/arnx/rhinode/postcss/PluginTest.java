@@ -0,0 +1,194 @@
+package net.arnx.rhinode.postcss;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PluginTest {
+  private static Path tempDir() throws Exception {
+    Path dir = Files.createTempDirectory("postcss");
+    dir.toFile().deleteOnExit();
+    return dir;
+  }
+
+  static class UrlRewriter implements Plugin {
+    @Override
+    public void process(Root root) {
+      root.walkDecls((decl) -> {
+        if (decl.value().contains("url(")) {
+          decl.value(decl.value().replace("url(img/", "url(/static/img/"));
+        }
+      });
+      root.walkAtRules((rule) -> {
+        if ("import".equals(rule.name())) {
+          rule.params(rule.params().replace("'a.css'", "'/static/a.css'"));
+        }
+      });
+    }
+  }
+
+  static class CustomPropertyInliner implements Plugin {
+    @Override
+    public void process(Root root) {
+      Map<String, String> properties = new HashMap<>();
+      root.walkRules((rule) -> {
+        if (":root".equals(rule.selector())) {
+          rule.each((child) -> {
+            if (child instanceof Declaration && ((Declaration)child).prop().startsWith("--")) {
+              properties.put(((Declaration)child).prop(), ((Declaration)child).value());
+              child.remove();
+            }
+          });
+          if (rule.nodes().isEmpty()) {
+            rule.remove();
+          }
+        }
+      });
+      root.walkDecls((decl) -> {
+        for (Map.Entry<String, String> entry : properties.entrySet()) {
+          decl.value(decl.value().replace("var(" + entry.getKey() + ")", entry.getValue()));
+        }
+      });
+    }
+  }
+
+  static class PrefixCounter implements Plugin {
+    final List<String> props = new ArrayList<>();
+
+    @Override
+    public void process(Root root) {
+      root.walkDecls((decl) -> {
+        if (decl.prop().startsWith("-")) {
+          props.add(decl.prop());
+        }
+      });
+    }
+  }
+
+  @Test
+  public void testOrder() throws Exception {
+    String css = ":root { --a: none; --b: url(img/b.png) }\n"
+        + "@import 'a.css';\n"
+        + "a { user-select: var(--a); background: var(--b); color: red }";
+
+    Path dir = tempDir();
+    PrefixCounter before = new PrefixCounter();
+    PrefixCounter after = new PrefixCounter();
+    try (PostCSS postcss = new PostCSS(dir.toUri(), dir)) {
+      postcss.use(new CustomPropertyInliner()).use(before).use("autoprefixer").use(new UrlRewriter());
+      postcss.use(new Plugin() {
+        @Override
+        public void process(Root root) {
+          after.process(root);
+        }
+      });
+
+      assertEquals("@import '/static/a.css';\n"
+          + "a { -webkit-user-select: none; -moz-user-select: none; -ms-user-select: none; user-select: none;"
+          + " background: url(/static/img/b.png); color: red }",
+          postcss.process(css, "a.css", "a.css").css());
+    }
+    assertEquals(0, before.props.size());
+    assertEquals(3, after.props.size());
+    assertEquals("-webkit-user-select", after.props.get(0));
+  }
+
+  static class ValueSuffix implements Plugin {
+    final String suffix;
+
+    ValueSuffix(String suffix) {
+      this.suffix = suffix;
+    }
+
+    @Override
+    public void process(Root root) {
+      root.walkDecls((decl) -> decl.value(decl.value() + suffix));
+    }
+
+    @Override
+    public String toString() {
+      return "ValueSuffix [suffix=" + suffix + "]";
+    }
+  }
+
+  @Test
+  public void testInstances() throws Exception {
+    Path dir = tempDir();
+    try (PostCSS postcss = new PostCSS(dir.toUri(), dir)) {
+      postcss.cache(10, 1000);
+      postcss.use(new ValueSuffix(" a")).use(new ValueSuffix(" b"));
+      assertEquals("a { color: red a b }", postcss.process("a { color: red }", "a.css", "a.css").css());
+
+      postcss.use(new ValueSuffix(" a"));
+      assertEquals("a { color: red a b a }", postcss.process("a { color: red }", "a.css", "a.css").css());
+    }
+  }
+
+  @Test
+  public void testNodes() throws Exception {
+    String css = "/* c */\na { color: red; margin: 0 !important }\n@media print { b { c: d } }";
+
+    List<String> visited = new ArrayList<>();
+    Path dir = tempDir();
+    try (PostCSS postcss = new PostCSS(dir.toUri(), dir)) {
+      postcss.use((Root root) -> {
+        root.walk((node) -> visited.add(node.type()));
+
+        Comment comment = (Comment)root.first();
+        assertEquals("c", comment.text());
+        assertNull(comment.prev());
+        assertEquals(root, comment.parent());
+
+        Rule rule = (Rule)comment.next();
+        assertEquals("a", rule.selector());
+        assertEquals(1, root.index(rule));
+        assertEquals(root, rule.root());
+
+        Declaration margin = (Declaration)rule.last();
+        assertTrue(margin.important());
+        assertFalse(((Declaration)rule.first()).important());
+        assertEquals("margin: 0 !important", margin.toString());
+        margin.important(false).prop("padding");
+
+        AtRule media = (AtRule)root.last();
+        assertEquals("media", media.name());
+        assertEquals("print", media.params());
+        Rule b = (Rule)media.first();
+        b.cloneAfter();
+        b.selector("i");
+        media.insertBefore(b, rule.first().cloneBefore());
+        media.append(comment);
+
+        rule.each((child) -> child.cloneBefore());
+      });
+
+      assertEquals("/* c */\na { color: red; color: red; color: red; color: red; padding: 0; padding: 0 }\n"
+          + "@media print { color: red; i { c: d } b { c: d } /* c */ }",
+          postcss.process(css, "a.css", "a.css").css());
+    }
+    assertEquals("[comment, rule, decl, decl, atrule, rule, decl]", visited.toString());
+  }
+
+  @Test
+  public void testError() throws Exception {
+    Path dir = tempDir();
+    try (PostCSS postcss = new PostCSS(dir.toUri(), dir)) {
+      postcss.use((Root root) -> {
+        throw new IllegalStateException("broken plugin");
+      });
+      try {
+        postcss.process("a {}", "a.css", "a.css");
+        fail();
+      } catch (PostCSSException e) {
+        assertTrue(e.getMessage(), e.getMessage().contains("broken plugin"));
+      }
+    }
+  }
+}
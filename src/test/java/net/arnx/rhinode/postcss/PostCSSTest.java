@@ -2,12 +2,136 @@ package net.arnx.rhinode.postcss;
 
 import static org.junit.Assert.*;
 
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
+import net.arnx.rhinode.core.ScriptLimitException;
+import net.arnx.rhinode.postcss.PostCSS.Option;
+
 public class PostCSSTest {
 
   @Test
   public void test() throws Exception {
     PostCSS.main(new String[] { "-?" });
   }
+
+  @Test
+  public void testSyntaxError() throws Exception {
+    Path dir = Files.createTempDirectory("postcss");
+    dir.toFile().deleteOnExit();
+    Path file = dir.resolve("broken.css");
+    file.toFile().deleteOnExit();
+    Files.write(file, "a { color: red".getBytes(StandardCharsets.UTF_8));
+
+    try (PostCSS postcss = new PostCSS(dir.toUri(), dir)) {
+      postcss.process("broken.css", "broken.css");
+      fail();
+    } catch (PostCSSException e) {
+      assertTrue(e.getMessage(), e.getMessage().contains("Unclosed block"));
+    }
+  }
+
+  @Test
+  public void testMetrics() throws Exception {
+    Path dir = Files.createTempDirectory("postcss");
+    dir.toFile().deleteOnExit();
+    Path file = dir.resolve("a.css");
+    file.toFile().deleteOnExit();
+    Files.write(file, "a { color: red } b { margin: 0 }".getBytes(StandardCharsets.UTF_8));
+
+    List<Metrics> notified = new ArrayList<>();
+    try (PostCSS postcss = new PostCSS(dir.toUri(), dir)) {
+      postcss.use("autoprefixer").listener((from, to, metrics, error) -> notified.add(metrics));
+      Metrics metrics = postcss.process("a.css", "a.css").metrics();
+
+      assertEquals(1, notified.size());
+      assertSame(metrics, notified.get(0));
+      assertEquals(1, metrics.parse().invocations());
+      assertEquals(1, metrics.stringify().invocations());
+      assertEquals(4, metrics.inputNodes());
+      assertEquals(1, metrics.plugins().get("autoprefixer").invocations());
+      assertTrue(metrics.totalTime(TimeUnit.NANOSECONDS) >= metrics.plugins().get("autoprefixer").time(TimeUnit.NANOSECONDS));
+    }
+  }
+
+  @Test(timeout = 60000)
+  public void testLimits() throws Exception {
+    Path dir = Files.createTempDirectory("postcss");
+    dir.toFile().deleteOnExit();
+    Path file = dir.resolve("a.css");
+    file.toFile().deleteOnExit();
+    Files.write(file, "a { color: red }".getBytes(StandardCharsets.UTF_8));
+
+    for (boolean timeout : new boolean[] { true, false }) {
+      try (PostCSS postcss = new PostCSS(dir.toUri(), dir)) {
+        // a processor is accepted as a list of plugins, so this adds a plain looping plugin
+        postcss.use("postcss", "[function(root) { var i = 0; while (true) { i++; } }]");
+        if (timeout) {
+          postcss.timeout(500, TimeUnit.MILLISECONDS);
+        } else {
+          postcss.instructionLimit(1000000);
+        }
+        postcss.process("a.css", "a.css");
+        fail();
+      } catch (PostCSSException e) {
+        assertTrue(e.getCause() instanceof ScriptLimitException);
+        assertTrue(e.getMessage(), e.getMessage().contains(timeout ? "timeout for execution" : "instruction limit exceeded"));
+      }
+    }
+  }
+
+  @Test
+  public void testProcessInputs() throws Exception {
+    Path dir = Files.createTempDirectory("postcss");
+    dir.toFile().deleteOnExit();
+    Path file = dir.resolve("a.css");
+    file.toFile().deleteOnExit();
+    String css = "a { display: flex }";
+    Files.write(file, css.getBytes(StandardCharsets.UTF_8));
+
+    try (PostCSS postcss = new PostCSS(dir.toUri(), dir)) {
+      postcss.use("autoprefixer");
+      String expected = postcss.process("a.css", "a.css").css();
+      assertTrue(expected, expected.contains("-webkit-box"));
+
+      assertEquals(expected, postcss.process(file, "a.css").css());
+      assertEquals(expected, postcss.process(new StringBuilder(css), "a.css", "a.css").css());
+      assertEquals(expected, postcss.process(new StringReader(css), "a.css", "a.css").css());
+      assertEquals(expected, postcss.process(ByteBuffer.wrap(css.getBytes(StandardCharsets.UTF_8)), "a.css", "a.css").css());
+    }
+  }
+
+  @Test
+  public void testSourceMap() throws Exception {
+    Path dir = Files.createTempDirectory("postcss");
+    dir.toFile().deleteOnExit();
+    Path file = dir.resolve("a.css");
+    file.toFile().deleteOnExit();
+    dir.resolve("a.css.map").toFile().deleteOnExit();
+    Files.write(file, "a { color: red }\nb { margin: 0 }".getBytes(StandardCharsets.UTF_8));
+
+    try (PostCSS postcss = new PostCSS(dir.toUri(), dir)) {
+      postcss.option(Option.CREATE_SOURCE_MAP, true);
+      postcss.option(Option.SOURCE_MAP_WITH_SOURCES_CONTENT, true);
+      postcss.option(Option.SOURCE_MAP_TO, "a.css.map");
+      PostCSS.Result result = postcss.process("a.css", "a.css");
+
+      assertTrue(result.css(), result.css().endsWith("/*# sourceMappingURL=a.css.map */"));
+      assertTrue(result.hasMap());
+      result.writeMap();
+      String map = new String(Files.readAllBytes(dir.resolve("a.css.map")), StandardCharsets.UTF_8);
+      assertEquals("{\"version\":3,\"sources\":[\"a.css\"],\"names\":[],"
+          + "\"mappings\":\"AAAA,IAAI,UAAU,EAAE;AAChB,IAAI,SAAS,EAAE\",\"file\":\"a.css\","
+          + "\"sourcesContent\":[\"a { color: red }\\nb { margin: 0 }\"]}", map);
+      assertEquals(map, result.map());
+    }
+  }
 }
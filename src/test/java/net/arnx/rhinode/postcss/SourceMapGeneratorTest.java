@@ -0,0 +1,74 @@
+package net.arnx.rhinode.postcss;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import org.junit.Test;
+
+public class SourceMapGeneratorTest {
+  private static String encode(int value) throws Exception {
+    StringBuilder sb = new StringBuilder();
+    SourceMapGenerator.encode(value, sb);
+    return sb.toString();
+  }
+
+  @Test
+  public void testEncode() throws Exception {
+    assertEquals("A", encode(0));
+    assertEquals("C", encode(1));
+    assertEquals("D", encode(-1));
+    assertEquals("e", encode(15));
+    assertEquals("gB", encode(16));
+    assertEquals("hB", encode(-16));
+    assertEquals("+/B", encode(1023));
+  }
+
+  @Test
+  public void testToString() throws Exception {
+    SourceMapGenerator map = new SourceMapGenerator("a.css");
+    map.addMapping("a.css", 1, 0, 1, 0);
+    map.addMapping("a.css", 1, 4, 1, 4);
+    map.addMapping("a.css", 1, 14, 1, 14);
+    map.addMapping("a.css", 1, 16, 1, 16);
+    map.addMapping("a.css", 2, 0, 2, 0);
+    map.addMapping("a.css", 2, 4, 2, 4);
+    map.addMapping("a.css", 2, 13, 2, 13);
+    map.addMapping("a.css", 2, 15, 2, 15);
+    map.setSourceContent("a.css", "a { color: red }\nb { margin: 0 }");
+
+    String expected = "{\"version\":3,\"sources\":[\"a.css\"],\"names\":[],"
+        + "\"mappings\":\"AAAA,IAAI,UAAU,EAAE;AAChB,IAAI,SAAS,EAAE\",\"file\":\"a.css\","
+        + "\"sourcesContent\":[\"a { color: red }\\nb { margin: 0 }\"]}";
+    assertEquals(expected, map.toString());
+    assertEquals(expected, new String(Base64.getDecoder().decode(map.toBase64()), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testUnsorted() throws Exception {
+    SourceMapGenerator map = new SourceMapGenerator(null);
+    map.addMapping("b.css", 2, 3, 5, 0);
+    map.addMapping("a.css", 1, 0, 1, 0);
+    map.addMapping("a.css", 1, 0, 1, 0);
+    map.addMapping("<no source>", 1, 0, 1, 0);
+
+    assertEquals("{\"version\":3,\"sources\":[\"b.css\",\"a.css\",\"<no source>\"],\"names\":[],"
+        + "\"mappings\":\"AEAA,ADAA;GDIA\"}", map.toString());
+  }
+
+  @Test
+  public void testSourcesContent() throws Exception {
+    SourceMapGenerator map = new SourceMapGenerator("out.css");
+    map.addMapping("a.css", 1, 0, 1, 0);
+    map.addMapping("b.css", 1, 1, 1, 0);
+    map.setSourceContent("b.css", "\"\\\t\u0001あ");
+
+    assertEquals("{\"version\":3,\"sources\":[\"a.css\",\"b.css\"],\"names\":[],"
+        + "\"mappings\":\"AAAA,CCAA\",\"file\":\"out.css\","
+        + "\"sourcesContent\":[null,\"\\\"\\\\\\t\\u0001あ\"]}", map.toString());
+
+    map.setSourceContent("b.css", null);
+    assertFalse(map.toString().contains("sourcesContent"));
+  }
+}
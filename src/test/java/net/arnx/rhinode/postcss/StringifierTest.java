@@ -0,0 +1,134 @@
+package net.arnx.rhinode.postcss;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mozilla.javascript.Script;
+
+import net.arnx.rhinode.core.RhinodeEngine;
+
+public class StringifierTest {
+  private static final String[] CORPUS = {
+      "",
+      "a{}",
+      "a { color: red }",
+      "a{color:red;background:url(a.png)}\n",
+      "a {\n  color: red;\n  margin: 0 !important;\n}\n\n/* x */\nb { }\n",
+      "@charset \"utf-8\";@import url('x.css') print;\n@font-face{font-family:x}",
+      "@media screen and (max-width: 100px) {\n    a {\n        b: c\n    }\n}",
+      "@media/* c */print{a{b:c}}@page :first{}@x;",
+      "a /* s */ , b { c /* p */ : d /* v */ !IMPORTANT ; /* last */ }",
+      "a{b:c;;}\r\n\r\nd{e:f}",
+      "\ta\t{\tb\t:\tc\t}\t",
+      "a { b: c\n  /* x */ }\nd { e: f; /* y */ }\ng { /* z */ }",
+      "あ { い: う; }",
+  };
+
+  // nodes without raws make both stringifiers fall back on raw detection
+  private static final String MUTATE = ""
+      + "root.append({ selector: 'x' });"
+      + "root.last.append({ prop: 'y', value: 'z', important: true });"
+      + "root.last.append({ text: 'note' });"
+      + "root.prepend({ name: 'media', params: 'print' });"
+      + "root.first.append({ selector: 'p' });"
+      + "root.append({ name: 'import', params: '\"a.css\"' });"
+      + "root.walkDecls(function(decl) { decl.cloneBefore({ prop: '-webkit-' + decl.prop }); });";
+
+  private final RhinodeEngine engine = new RhinodeEngine(getClass().getClassLoader(), "net/arnx/rhinode/modules");
+
+  private final Script script = RhinodeEngine.compile(""
+      + "var postcss = require('postcss');"
+      + "var run = function(nativeStringifier) {"
+      + "  var root = postcss.parse(css, { from: 'a.css' });"
+      + "  if (mutate) {" + MUTATE + "}"
+      + "  var result = postcss().process(root, {"
+      + "    from: 'a.css', to: 'a.css', map: map && { inline: false }, nativeStringifier: nativeStringifier"
+      + "  }).stringify();"
+      + "  return result.css + '\\n' + result.map;"
+      + "};"
+      + "this.script = run(false);"
+      + "this.java = run(true);",
+      "<stringifier>");
+
+  private void assertSame(String css) {
+    for (boolean mutate : new boolean[] { false, true }) {
+      for (boolean map : new boolean[] { false, true }) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("css", css);
+        params.put("mutate", mutate);
+        params.put("map", map);
+        Map<String, Class<?>> resultTypes = new HashMap<>();
+        resultTypes.put("script", String.class);
+        resultTypes.put("java", String.class);
+
+        Map<String, Object> result = engine.run(script, params, resultTypes);
+        assertEquals(css, result.get("script"), result.get("java"));
+      }
+    }
+  }
+
+  @Test
+  public void testCorpus() {
+    for (String css : CORPUS) {
+      assertSame(css);
+    }
+  }
+
+  @Test
+  public void testMetrics() {
+    Script metrics = RhinodeEngine.compile(""
+        + "var postcss = require('postcss');"
+        + "var MapGenerator = require('postcss/lib/map-generator');"
+        + "var events = [];"
+        + "var opts = require('classpath:net/arnx/rhinode/postcss/metrics.js').options(postcss, {}, {"
+        + "  from: 'a.css', to: 'a.css', map: map && { inline: false }, nativeStringifier: true"
+        + "}, function(type, name) { events.push(type + ' ' + name); });"
+        + "var generator = new MapGenerator(opts.stringifier, postcss.parse('a { b: c }', opts), opts);"
+        + "this.isNative = generator.isNativeStringifier();"
+        + "this.css = generator.generate()[0];"
+        + "this.events = events.join();",
+        "<metrics>");
+
+    for (boolean map : new boolean[] { false, true }) {
+      Map<String, Object> params = new HashMap<>();
+      params.put("map", map);
+      Map<String, Class<?>> resultTypes = new HashMap<>();
+      resultTypes.put("isNative", Boolean.class);
+      resultTypes.put("css", String.class);
+      resultTypes.put("events", String.class);
+
+      Map<String, Object> result = engine.run(metrics, params, resultTypes);
+      assertEquals(true, result.get("isNative"));
+      assertTrue(((String)result.get("css")).startsWith("a { b: c }"));
+      assertEquals("start stringify,end stringify,nodes stringify", result.get("events"));
+    }
+  }
+
+  @Test
+  public void testProcess() throws Exception {
+    Path dir = Files.createTempDirectory("postcss");
+    dir.toFile().deleteOnExit();
+
+    for (boolean inline : new boolean[] { false, true }) {
+      try (PostCSS script = new PostCSS(dir.toUri(), dir); PostCSS java = new PostCSS(dir.toUri(), dir)) {
+        script.use("autoprefixer").option(PostCSS.Option.CREATE_SOURCE_MAP, true)
+            .option(PostCSS.Option.SOURCE_MAPPING_URL_INLINE, inline);
+        java.use("autoprefixer").option(PostCSS.Option.CREATE_SOURCE_MAP, true)
+            .option(PostCSS.Option.SOURCE_MAPPING_URL_INLINE, inline)
+            .option(PostCSS.Option.STRINGIFY_NATIVE, true);
+        for (String css : CORPUS) {
+          css += "\n.f { display: flex; user-select: none }\n:fullscreen a { transition: transform 1s }";
+          PostCSS.Result expected = script.process(css, "a.css", "a.css");
+          PostCSS.Result actual = java.process(css, "a.css", "a.css");
+          assertEquals(css, expected.css(), actual.css());
+          assertEquals(css, expected.map(), actual.map());
+        }
+      }
+    }
+  }
+}
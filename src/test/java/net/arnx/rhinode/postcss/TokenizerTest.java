@@ -0,0 +1,118 @@
+package net.arnx.rhinode.postcss;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.mozilla.javascript.Script;
+
+import net.arnx.rhinode.core.RhinodeEngine;
+
+public class TokenizerTest {
+  private static final String[] CORPUS = {
+      "",
+      " ",
+      "a { color: red }",
+      "a{color:red;background:url(a.png)}\n",
+      "@media screen and (max-width: 100px) { a { b: c } }",
+      "@charset \"utf-8\";@import url('x.css') print;",
+      "a { content: \"a\\\"b\" 'c\\\\' \"multi\\\nline\" }",
+      "/* comment */ a /* multi\nline\r\ncomment */ { }",
+      "a[href^='http'], b:not(.c) > d ~ e + f::after { x: y !important }",
+      "a { background: url( a.png ) url(\"b.png\") url(c\\).png) url(d(e).png) }",
+      "a { width: calc(100% - (2 * var(--gap))) }",
+      ":root { --x: { a: b }; --y: [1] }",
+      "a\r\nb\rc\fd\n\te",
+      "\\\\a \\\\\\b \\ c \\",
+      "#id.class@x!y\"z\"",
+      "a{b:c}/*",
+      "a{b:'c",
+      "a{b:url(c",
+      "a{b:(c",
+      "@",
+      "/",
+      "a/*b*/c/d",
+      "u (v\"w)",
+      "x(\ny)",
+      "あ😀 { い: う }",
+  };
+
+  private static final String ALPHABET = " \n\r\f\t{}[]():;@!'\"\\/*#,.-_aburl0123456789あ";
+
+  private final RhinodeEngine engine = new RhinodeEngine(getClass().getClassLoader(), "net/arnx/rhinode/modules");
+
+  private final Script script = RhinodeEngine.compile(""
+      + "var Input = require('postcss/lib/input');"
+      + "var tokenize = require('postcss/lib/tokenize');"
+      + "var Tokenizer = Java.type('net.arnx.rhinode.postcss.Tokenizer');"
+      + "var run = function(f) {"
+      + "  try {"
+      + "    return JSON.stringify(f(new Input(css)));"
+      + "  } catch (e) {"
+      + "    return e.name + ': ' + e.reason + ' ' + e.line + ':' + e.column;"
+      + "  }"
+      + "};"
+      + "this.script = run(function(input) { return tokenize(input, { ignoreErrors: ignoreErrors }); });"
+      + "this.java = run(function(input) { return Tokenizer.tokenize(input, ignoreErrors); });",
+      "<tokenizer>");
+
+  private void assertSame(String css) {
+    for (boolean ignoreErrors : new boolean[] { false, true }) {
+      Map<String, Object> params = new HashMap<>();
+      params.put("css", css);
+      params.put("ignoreErrors", ignoreErrors);
+      Map<String, Class<?>> resultTypes = new HashMap<>();
+      resultTypes.put("script", String.class);
+      resultTypes.put("java", String.class);
+
+      Map<String, Object> result = engine.run(script, params, resultTypes);
+      assertEquals(css, result.get("script"), result.get("java"));
+    }
+  }
+
+  @Test
+  public void testCorpus() {
+    for (String css : CORPUS) {
+      assertSame(css);
+    }
+  }
+
+  @Test
+  public void testRandom() {
+    Random random = new Random(42);
+    for (int i = 0; i < 300; i++) {
+      char[] chars = new char[random.nextInt(64)];
+      for (int j = 0; j < chars.length; j++) {
+        chars[j] = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+      }
+      assertSame(new String(chars));
+    }
+  }
+
+  @Test
+  public void testProcess() throws Exception {
+    String css = "a { color: red; background: url(a.png) }\n/* x */\n@media print { b { margin: 0 } }";
+    Path dir = Files.createTempDirectory("postcss");
+    dir.toFile().deleteOnExit();
+
+    try (PostCSS script = new PostCSS(dir.toUri(), dir); PostCSS java = new PostCSS(dir.toUri(), dir)) {
+      script.use("autoprefixer").option(PostCSS.Option.CREATE_SOURCE_MAP, true);
+      java.use("autoprefixer").option(PostCSS.Option.CREATE_SOURCE_MAP, true).option(PostCSS.Option.PARSE_NATIVE_TOKENIZER, true);
+      PostCSS.Result expected = script.process(css, "a.css", "a.css");
+      PostCSS.Result actual = java.process(css, "a.css", "a.css");
+      assertEquals(expected.css(), actual.css());
+
+      try {
+        java.process("a { color: 'red }", "b.css", "b.css");
+        fail();
+      } catch (PostCSSException e) {
+        assertTrue(e.getMessage(), e.getMessage().contains("Unclosed string"));
+      }
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package net.arnx.rhinode.postcss;
+
+import static org.junit.Assert.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WatcherTest {
+  private Path src;
+
+  @Before
+  public void setUp() throws Exception {
+    src = Files.createTempDirectory("postcss-watch");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    try (Stream<Path> stream = Files.walk(src)) {
+      stream.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+    }
+  }
+
+  private void write(Path file, String content) throws Exception {
+    Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testDestInsideRoot() throws Exception {
+    Path dest = src.resolve("out");
+    write(src.resolve("a.css"), "a { color: red }");
+
+    BlockingQueue<BatchResult> results = new LinkedBlockingQueue<>();
+    try (PostCSS postcss = new PostCSS(src.toUri(), dest)) {
+      assertEquals(1, postcss.processAll("**.css").size());
+      assertEquals(1, postcss.processAll("**.css").size());
+
+      Watcher watcher = postcss.watch("**.css", 50, TimeUnit.MILLISECONDS, results::add);
+      try {
+        write(src.resolve("a.css"), "a { color: blue }");
+
+        BatchResult result = results.poll(30, TimeUnit.SECONDS);
+        assertNotNull(result);
+        assertTrue(String.valueOf(result.error()), result.isSuccess());
+        assertEquals("a { color: blue }", new String(Files.readAllBytes(dest.resolve("a.css")), StandardCharsets.UTF_8));
+
+        // the output written above must not start another batch
+        assertNull(results.poll(1, TimeUnit.SECONDS));
+      } finally {
+        watcher.close();
+      }
+    }
+  }
+
+  @Test
+  public void testFailingListener() throws Exception {
+    Path dest = Files.createTempDirectory("postcss-dest");
+    write(src.resolve("a.css"), "a { color: red }");
+
+    BlockingQueue<BatchResult> results = new LinkedBlockingQueue<>();
+    try (PostCSS postcss = new PostCSS(src.toUri(), dest)) {
+      Watcher watcher = postcss.watch("**.css", 50, TimeUnit.MILLISECONDS, (result) -> {
+        results.add(result);
+        throw new IllegalStateException("listener failed");
+      });
+      try {
+        write(src.resolve("a.css"), "a { color: blue }");
+        assertNotNull(results.poll(30, TimeUnit.SECONDS));
+
+        // the watcher keeps going after the listener has failed
+        write(src.resolve("a.css"), "a { color: green }");
+        BatchResult result = results.poll(30, TimeUnit.SECONDS);
+        assertNotNull(result);
+        assertTrue(String.valueOf(result.error()), result.isSuccess());
+      } finally {
+        watcher.close();
+      }
+    } finally {
+      try (Stream<Path> stream = Files.walk(dest)) {
+        stream.sorted(Comparator.reverseOrder()).forEach((path) -> path.toFile().delete());
+      }
+    }
+  }
+
+  @Test
+  public void testDestContainsRoot() throws Exception {
+    try (PostCSS postcss = new PostCSS(src.toUri(), src)) {
+      postcss.watch("**.css", (result) -> {}).close();
+      fail();
+    } catch (IllegalStateException e) {
+      assertTrue(e.getMessage().contains("watched source root"));
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package net.arnx.rhinode.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import net.arnx.rhinode.util.BoundedExecutor.RejectionPolicy;
+
+public class BoundedExecutorTest {
+
+  @Test
+  public void testBounded() throws Exception {
+    ExecutorService pool = Executors.newCachedThreadPool();
+    try {
+      BoundedExecutor executor = new BoundedExecutor(pool, 2, 100, RejectionPolicy.ABORT);
+      AtomicInteger running = new AtomicInteger();
+      AtomicInteger maxRunning = new AtomicInteger();
+
+      List<CompletableFuture<Integer>> futures = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        int n = i;
+        futures.add(executor.submit(() -> {
+          maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+          Thread.sleep(5);
+          running.decrementAndGet();
+          return n;
+        }));
+      }
+
+      for (int i = 0; i < futures.size(); i++) {
+        assertEquals(Integer.valueOf(i), futures.get(i).get(10, TimeUnit.SECONDS));
+      }
+      assertTrue(maxRunning.get() <= 2);
+
+      awaitIdle(executor);
+      BoundedExecutor.Stats stats = executor.stats();
+      assertEquals(0, stats.queued());
+      assertEquals(20, stats.submitCount());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testRejection() throws Exception {
+    ExecutorService pool = Executors.newCachedThreadPool();
+    CountDownLatch latch = new CountDownLatch(1);
+    try {
+      BoundedExecutor abort = new BoundedExecutor(pool, 1, 1, RejectionPolicy.ABORT);
+      CompletableFuture<String> running = abort.submit(() -> {
+        latch.await();
+        return "running";
+      });
+      CompletableFuture<String> queued = abort.submit(() -> "queued");
+      CompletableFuture<String> rejected = abort.submit(() -> "rejected");
+
+      try {
+        rejected.get();
+        fail();
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+      }
+      assertEquals(1, abort.stats().queued());
+      assertEquals(1, abort.stats().rejectCount());
+
+      BoundedExecutor callerRuns = new BoundedExecutor(pool, 1, 0, RejectionPolicy.CALLER_RUNS);
+      callerRuns.submit(() -> latch.await(10, TimeUnit.SECONDS));
+      Thread caller = Thread.currentThread();
+      assertEquals(Boolean.TRUE, callerRuns.submit(() -> Thread.currentThread() == caller).get());
+      assertEquals(1, callerRuns.stats().callerRunCount());
+
+      latch.countDown();
+      assertEquals("running", running.get(10, TimeUnit.SECONDS));
+      assertEquals("queued", queued.get(10, TimeUnit.SECONDS));
+    } finally {
+      latch.countDown();
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testExecutorRejection() throws Exception {
+    List<CompletableFuture<String>> queued = new ArrayList<>();
+    BoundedExecutor[] holder = new BoundedExecutor[1];
+    BoundedExecutor executor = new BoundedExecutor((command) -> {
+      // submitted while the first job holds the only slot but has not started yet
+      queued.add(holder[0].submit(() -> "queued"));
+      throw new RejectedExecutionException("shutdown");
+    }, 1, 10, RejectionPolicy.ABORT);
+    holder[0] = executor;
+
+    CompletableFuture<String> first = executor.submit(() -> "first");
+    assertTrue(first.isCompletedExceptionally());
+    assertEquals(1, queued.size());
+    try {
+      queued.get(0).get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    BoundedExecutor.Stats stats = executor.stats();
+    assertEquals(0, stats.inFlight());
+    assertEquals(0, stats.queued());
+    assertEquals(2, stats.rejectCount());
+  }
+
+  @Test
+  public void testClose() throws Exception {
+    ExecutorService pool = Executors.newCachedThreadPool();
+    CountDownLatch latch = new CountDownLatch(1);
+    try {
+      BoundedExecutor executor = new BoundedExecutor(pool, 1, 10, RejectionPolicy.ABORT);
+      CompletableFuture<Boolean> running = executor.submit(() -> latch.await(10, TimeUnit.SECONDS));
+      CompletableFuture<String> queued = executor.submit(() -> "queued");
+
+      executor.close();
+      assertTrue(queued.isCancelled());
+      assertTrue(executor.submit(() -> "closed").isCompletedExceptionally());
+
+      latch.countDown();
+      assertEquals(Boolean.TRUE, running.get(10, TimeUnit.SECONDS));
+      awaitIdle(executor);
+    } finally {
+      latch.countDown();
+      pool.shutdownNow();
+    }
+  }
+
+  private static void awaitIdle(BoundedExecutor executor) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (executor.stats().inFlight() > 0) {
+      assertTrue(System.nanoTime() < deadline);
+      Thread.sleep(1);
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package net.arnx.rhinode.util;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Test;
+
+public class FileUtilTest {
+  private static String text(int length) {
+    StringBuilder sb = new StringBuilder(length);
+    while (sb.length() < length) {
+      sb.append("a { content: \"あいう😀\"; }\n");
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testToStringFromStream() throws Exception {
+    String text = text(20000);
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+    assertEquals(text, FileUtil.toString(new ByteArrayInputStream(bytes)));
+    assertEquals("", FileUtil.toString(new ByteArrayInputStream(new byte[0])));
+
+    // a stream without available() and returning short reads
+    InputStream in = new FilterInputStream(new ByteArrayInputStream(bytes)) {
+      @Override
+      public int available() throws IOException {
+        return 0;
+      }
+
+      @Override
+      public int read(byte[] b, int off, int len) throws IOException {
+        return super.read(b, off, Math.min(len, 7));
+      }
+    };
+    assertEquals(text, FileUtil.toString(in));
+  }
+
+  @Test
+  public void testToStringFromReader() throws Exception {
+    String text = text(20000);
+    assertEquals(text, FileUtil.toString(new StringReader(text)));
+  }
+
+  @Test
+  public void testToStringFromByteBuffer() throws Exception {
+    String text = text(1000);
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+    ByteBuffer heap = ByteBuffer.allocate(bytes.length + 4);
+    heap.position(2);
+    heap.put(bytes);
+    heap.flip();
+    heap.position(2);
+    assertEquals(text, FileUtil.toString(heap.slice()));
+    assertEquals(text, FileUtil.toString(heap));
+    assertEquals(2, heap.position());
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes);
+    direct.flip();
+    assertEquals(text, FileUtil.toString(direct));
+    assertEquals(0, direct.position());
+  }
+
+  @Test
+  public void testToStringFromPath() throws Exception {
+    Path dir = Files.createTempDirectory("fileutil");
+    try {
+      String small = text(1000);
+      Path smallFile = Files.write(dir.resolve("small.css"), small.getBytes(StandardCharsets.UTF_8));
+      assertEquals(small, FileUtil.toString(smallFile));
+
+      String large = text((int)FileUtil.MAP_THRESHOLD);
+      Path largeFile = Files.write(dir.resolve("large.css"), large.getBytes(StandardCharsets.UTF_8));
+      assertTrue(Files.size(largeFile) >= FileUtil.MAP_THRESHOLD);
+      assertEquals(large, FileUtil.toString(largeFile));
+    } finally {
+      try {
+        Files.deleteIfExists(dir.resolve("small.css"));
+        Files.deleteIfExists(dir.resolve("large.css"));
+        Files.deleteIfExists(dir);
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+}
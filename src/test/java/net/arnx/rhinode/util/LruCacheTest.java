@@ -0,0 +1,136 @@
+package net.arnx.rhinode.util;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class LruCacheTest {
+
+  @Test
+  public void testEviction() throws Exception {
+    LruCache<String, String> cache = new LruCache<>(2, 100, String::length);
+    assertEquals("a", cache.get("a", () -> "a"));
+    assertEquals("b", cache.get("b", () -> "b"));
+    assertEquals("a", cache.get("a", () -> "x"));
+    assertEquals("c", cache.get("c", () -> "c"));
+
+    assertEquals("a", cache.getIfPresent("a"));
+    assertNull(cache.getIfPresent("b"));
+    assertEquals("c", cache.getIfPresent("c"));
+
+    LruCache.Stats stats = cache.stats();
+    assertEquals(2, stats.size());
+    assertEquals(1, stats.hitCount());
+    assertEquals(3, stats.missCount());
+    assertEquals(1, stats.evictionCount());
+  }
+
+  @Test
+  public void testWeight() throws Exception {
+    LruCache<String, String> cache = new LruCache<>(10, 5, String::length);
+    cache.put("a", "aaa");
+    cache.put("b", "bb");
+    assertEquals(5, cache.stats().weight());
+    cache.put("c", "c");
+    assertNull(cache.getIfPresent("a"));
+    assertEquals(3, cache.stats().weight());
+  }
+
+  @Test
+  public void testOversized() throws Exception {
+    LruCache<String, String> cache = new LruCache<>(10, 5, String::length);
+    cache.put("a", "aa");
+    cache.put("b", "b");
+    assertEquals("dddddddd", cache.get("d", () -> "dddddddd"));
+    assertNull(cache.getIfPresent("d"));
+    assertEquals("aa", cache.getIfPresent("a"));
+    assertEquals(2, cache.stats().size());
+    assertEquals(3, cache.stats().weight());
+    assertEquals(0, cache.stats().evictionCount());
+
+    cache.put("a", "aaaaaa");
+    assertNull(cache.getIfPresent("a"));
+    assertEquals(1, cache.stats().weight());
+  }
+
+  @Test
+  public void testChangingWeight() throws Exception {
+    LruCache<String, StringBuilder> cache = new LruCache<>(2, 100, StringBuilder::length);
+    StringBuilder a = new StringBuilder("aa");
+    cache.put("a", a);
+    a.append("aaaa");
+    cache.put("a", new StringBuilder("b"));
+    assertEquals(1, cache.stats().weight());
+
+    StringBuilder c = new StringBuilder("cc");
+    cache.put("c", c);
+    c.setLength(0);
+    cache.put("d", new StringBuilder("ddd"));
+    cache.put("e", new StringBuilder("e"));
+    assertEquals(4, cache.stats().weight());
+    assertEquals(2, cache.stats().size());
+  }
+
+  @Test
+  public void testFailure() throws Exception {
+    LruCache<String, String> cache = new LruCache<>(10, 100, String::length);
+    try {
+      cache.get("a", () -> {
+        throw new IOException("failed");
+      });
+      fail();
+    } catch (IOException e) {
+      assertEquals("failed", e.getMessage());
+    }
+    assertEquals("a", cache.get("a", () -> "a"));
+  }
+
+  @Test
+  public void testSingleFlight() throws Exception {
+    LruCache<String, String> cache = new LruCache<>(10, 100, String::length);
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      futures.add(executor.submit(() -> cache.get("a", () -> {
+        loads.incrementAndGet();
+        started.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+        return "a";
+      })));
+      started.await();
+      for (int i = 0; i < 3; i++) {
+        futures.add(executor.submit(() -> cache.get("a", () -> {
+          loads.incrementAndGet();
+          return "x";
+        })));
+      }
+      Thread.sleep(50);
+      release.countDown();
+
+      for (Future<String> future : futures) {
+        assertEquals("a", future.get());
+      }
+      assertEquals(1, loads.get());
+      assertEquals(1, cache.stats().missCount());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}